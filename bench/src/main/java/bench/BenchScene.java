@@ -0,0 +1,27 @@
+package bench;
+
+import engine.core.Game;
+import engine.core.Scene;
+
+/**
+ * A started Game with an empty current Scene, for the benchmarks to fill.
+ */
+public class BenchScene {
+	private Game m_game;
+	private Scene m_scene;
+
+	public BenchScene() {
+		m_game = new Game();
+		m_scene = new Scene(m_game);
+		m_game.scenes().addScene(m_scene, "main");
+		m_game.start();
+	}
+
+	public Game getGame() {
+		return m_game;
+	}
+
+	public Scene getScene() {
+		return m_scene;
+	}
+}
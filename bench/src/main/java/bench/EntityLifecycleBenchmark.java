@@ -0,0 +1,88 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import commons.Transform2f;
+
+import engine.core.Entity;
+import engine.core.EntityBuilder;
+import engine.core.Scene;
+import engine.core.TagList;
+
+/**
+ * Scene.createEntity() followed by Scene.destroyEntity() in a Scene which already holds many Entities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityLifecycleBenchmark {
+	@Param({ "1000", "10000", "100000" })
+	public int population;
+
+	private Scene m_scene;
+	private Entity m_parent;
+	private EntityBuilder m_builder;
+	private EntityBuilder m_prefab;
+
+	@Setup
+	public void setUp() {
+		m_scene = new BenchScene().getScene();
+		// half at the top level, half under one parent
+		m_parent = m_scene.createEntity("parent", m_scene);
+		for (int i = 0; i < population / 2; i++) {
+			m_scene.createEntity("top" + i, m_scene);
+			m_scene.createEntity("child" + i, m_parent);
+		}
+		m_scene.updateWorldTransforms();
+
+		m_builder = new EntityBuilder();
+		m_builder.setTagList(new TagList("probe"));
+		m_builder.setTransform(new Transform2f(1f, 2f, 0f, 1f, 1f));
+
+		m_prefab = new EntityBuilder();
+		for (int i = 0; i < 4; i++)
+			m_prefab.addChildBuilder("part" + i, m_builder);
+	}
+
+	private void destroy(Entity entity) {
+		m_scene.destroyEntity(entity);
+		// clears the dirty transforms, as a frame would
+		m_scene.updateWorldTransforms();
+	}
+
+	@Benchmark
+	public Entity createDestroyTopLevel() {
+		Entity entity = m_scene.createEntity("probe", m_scene, m_builder);
+		destroy(entity);
+		return entity;
+	}
+
+	@Benchmark
+	public Entity createDestroyChild() {
+		Entity entity = m_scene.createEntity("probe", m_parent, m_builder);
+		destroy(entity);
+		return entity;
+	}
+
+	@Benchmark
+	public Entity createDestroyPrefab() {
+		Entity entity = m_scene.createEntity("probe", m_scene, m_prefab);
+		destroy(entity);
+		return entity;
+	}
+}
@@ -0,0 +1,85 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import engine.core.CScriptData;
+import engine.core.CTransform;
+import engine.core.Entity;
+import engine.core.EntityBuilder;
+import engine.core.Scene;
+import engine.core.SimpleEntityFilter;
+import engine.core.TagList;
+
+/**
+ * SimpleEntityFilter.matches() over a mix of Entities, for filters which match most, some and none of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+	private static final int ENTITIES = 1024;
+	private static final String[] TAGS = { "enemy", "friend", "wall", "pickup" };
+
+	private Entity[] m_entities;
+	private SimpleEntityFilter m_components;
+	private SimpleEntityFilter m_tagged;
+	private SimpleEntityFilter m_none;
+	private SimpleEntityFilter m_topLevel;
+
+	@Setup
+	public void setUp() {
+		Scene scene = new BenchScene().getScene();
+		m_entities = new Entity[ENTITIES];
+		for (int i = 0; i < ENTITIES; i++) {
+			EntityBuilder builder = new EntityBuilder();
+			builder.setTagList(new TagList(TAGS[i % TAGS.length], "group" + (i % 16)));
+			Entity parent = (i % 2 == 0) ? null : m_entities[i - 1];
+			m_entities[i] = (parent == null) ? scene.createEntity("e" + i, scene, builder) : scene.createEntity("e" + i,
+					parent, builder);
+		}
+		m_components = new SimpleEntityFilter(new String[] { CTransform.NAME, CScriptData.NAME }, new String[0], false);
+		m_tagged = new SimpleEntityFilter(new String[] { CTransform.NAME }, new String[] { "enemy", "group4" }, false);
+		m_none = new SimpleEntityFilter(new String[] { "missing" }, new String[0], false);
+		m_topLevel = new SimpleEntityFilter(new String[0], new String[] { "wall" }, true);
+	}
+
+	private void matchAll(SimpleEntityFilter filter, Blackhole hole) {
+		for (Entity entity : m_entities)
+			hole.consume(filter.matches(entity));
+	}
+
+	@Benchmark
+	public void matchesComponents(Blackhole hole) {
+		matchAll(m_components, hole);
+	}
+
+	@Benchmark
+	public void matchesTags(Blackhole hole) {
+		matchAll(m_tagged, hole);
+	}
+
+	@Benchmark
+	public void matchesNone(Blackhole hole) {
+		matchAll(m_none, hole);
+	}
+
+	@Benchmark
+	public void matchesTopLevel(Blackhole hole) {
+		matchAll(m_topLevel, hole);
+	}
+}
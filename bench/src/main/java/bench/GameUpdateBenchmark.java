@@ -0,0 +1,69 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.core.Entity;
+import engine.core.EntityBuilder;
+import engine.core.Game;
+import engine.core.Scene;
+import engine.core.TagList;
+
+/**
+ * A whole Game.update() of a Scene with StubSystems which move some Entities and read the world transforms of others.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameUpdateBenchmark {
+	@Param({ "1000", "10000" })
+	public int entities;
+
+	@Param({ "false", "true" })
+	public boolean parallel;
+
+	private Game m_game;
+
+	@Setup
+	public void setUp() {
+		BenchScene bench = new BenchScene();
+		m_game = bench.getGame();
+		m_game.addSystem(new StubSystem("moving", true, parallel));
+		m_game.addSystem(new StubSystem("watched", false, parallel));
+		m_game.addSystem(new StubSystem("static", false, parallel));
+
+		Scene scene = bench.getScene();
+		EntityBuilder moving = new EntityBuilder();
+		moving.setTagList(new TagList("moving", "watched"));
+		EntityBuilder still = new EntityBuilder();
+		still.setTagList(new TagList("static"));
+		// groups of a moving parent with children, so moves dirty whole subtrees
+		for (int i = 0; i < entities / 4; i++) {
+			Entity parent = scene.createEntity("group" + i, scene, moving);
+			scene.createEntity("a", parent, moving);
+			scene.createEntity("b", parent, still);
+			scene.createEntity("c", parent, still);
+		}
+		m_game.update(0f);
+	}
+
+	@Benchmark
+	public Game update() {
+		m_game.update(16.6f);
+		return m_game;
+	}
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.core.Entity;
+import engine.core.EntityPath;
+import engine.core.Scene;
+
+/**
+ * Looking an Entity up by path with Scene.find() and with a compiled EntityPath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBenchmark {
+	private static final String PATH = "level.player.arm.hand";
+
+	private Scene m_scene;
+	private EntityPath m_path;
+
+	@Setup
+	public void setUp() {
+		m_scene = new BenchScene().getScene();
+		Entity level = m_scene.createEntity("level", m_scene);
+		for (int i = 0; i < 100; i++)
+			m_scene.createEntity("prop" + i, level);
+		Entity player = m_scene.createEntity("player", level);
+		Entity arm = m_scene.createEntity("arm", player);
+		m_scene.createEntity("hand", arm);
+		m_path = m_scene.compilePath(PATH);
+	}
+
+	@Benchmark
+	public Entity find() {
+		return m_scene.find(PATH);
+	}
+
+	@Benchmark
+	public Entity compiled() {
+		return m_path.get();
+	}
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import commons.Transform2f;
+
+import engine.core.Component;
+import engine.core.ComponentBuilder;
+import engine.core.Entity;
+import engine.core.EntityBuilder;
+import engine.core.EntityPlan;
+import engine.core.Scene;
+import engine.core.TagList;
+
+/**
+ * Instantiating a prefab tree from its EntityBuilder with Scene.createEntity(), and from the compiled EntityPlan with
+ * Scene.instantiate(), then destroying it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefabBenchmark {
+	private static final int BRANCHING = 3;
+
+	// 4 and 364 Entities
+	@Param({ "1", "5" })
+	public int depth;
+
+	private Scene m_scene;
+	private EntityBuilder m_builder;
+	private EntityPlan m_plan;
+
+	@Setup
+	public void setUp() {
+		m_scene = new BenchScene().getScene();
+		m_builder = makeBuilder(depth);
+		m_plan = new EntityPlan(m_builder);
+	}
+
+	private EntityBuilder makeBuilder(int depth) {
+		EntityBuilder builder = new EntityBuilder();
+		builder.addComponentBuilder(new CMarker().getBuilder());
+		builder.setTagList(new TagList("prefab", "depth" + depth));
+		builder.setTransform(new Transform2f(1f, 0f, 0.5f, 1f, 1f));
+		builder.getScriptData().put("depth", depth);
+		if (depth > 0) {
+			for (int i = 0; i < BRANCHING; i++)
+				builder.addChildBuilder("child" + i, makeBuilder(depth - 1));
+		}
+		return builder;
+	}
+
+	private void destroy(Entity prefab) {
+		m_scene.destroyEntity(prefab);
+		// clears the dirty transforms, as a frame would
+		m_scene.updateWorldTransforms();
+	}
+
+	@Benchmark
+	public Entity fromBuilder() {
+		Entity prefab = m_scene.createEntity("prefab", m_scene, m_builder);
+		destroy(prefab);
+		return prefab;
+	}
+
+	@Benchmark
+	public Entity fromPlan() {
+		Entity prefab = m_scene.instantiate(m_plan, "prefab", m_scene);
+		destroy(prefab);
+		return prefab;
+	}
+
+	/**
+	 * A Component with no data.
+	 */
+	private static class CMarker implements Component {
+		public static final String NAME = "marker";
+
+		@Override
+		public String getName() {
+			return NAME;
+		}
+
+		@Override
+		public ComponentBuilder<CMarker> getBuilder() {
+			return new ComponentBuilder<CMarker>() {
+				@Override
+				public CMarker build() {
+					return new CMarker();
+				}
+
+				@Override
+				public String getName() {
+					return NAME;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.core.Entity;
+import engine.core.Scene;
+import engine.core.SceneSnapshot;
+
+/**
+ * Taking a snapshot of a Scene into a reused SceneSnapshot, and restoring it in place after every Entity has moved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+	@Param({ "1000", "5000" })
+	public int entities;
+
+	private Scene m_scene;
+	private Entity[] m_entities;
+	private SceneSnapshot m_snapshot;
+
+	@Setup
+	public void setUp() {
+		m_scene = new BenchScene().getScene();
+		m_entities = new Entity[entities];
+		Entity level = m_scene.createEntity("level", m_scene);
+		for (int i = 0; i < entities; i++) {
+			Entity entity = m_scene.createEntity("unit" + i, level);
+			entity.transform().setTranslation(i, -i);
+			entity.tags().addTag((i % 2 == 0) ? "red" : "blue");
+			entity.scriptData().setData("health", 100);
+			m_entities[i] = entity;
+		}
+		m_snapshot = m_scene.snapshot();
+	}
+
+	@Benchmark
+	public SceneSnapshot capture() {
+		m_scene.snapshot(m_snapshot);
+		return m_snapshot;
+	}
+
+	@Benchmark
+	public Scene restoreMoved() {
+		for (Entity entity : m_entities)
+			entity.transform().translate(1f, 1f);
+		m_scene.restore(m_snapshot);
+		return m_scene;
+	}
+}
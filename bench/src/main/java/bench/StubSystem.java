@@ -0,0 +1,118 @@
+package bench;
+
+import engine.core.CTransform;
+import engine.core.Entity;
+import engine.core.EntityFilter;
+import engine.core.Scene;
+import engine.core.ScheduledSystem;
+import engine.core.SimpleEntityFilter;
+import engine.core.TreeNode;
+import engine.core.script.XScript;
+
+/**
+ * An EntitySystem which does a little work on every Entity with a tag: a mover nudges their CTransforms, a reader
+ * sums their world transforms.
+ */
+public class StubSystem implements ScheduledSystem {
+	private SimpleEntityFilter m_filter;
+	private boolean m_writes;
+	private boolean m_parallel;
+	private volatile float m_sum;
+
+	/**
+	 * @param tag
+	 *            the tag of the Entities updated
+	 * @param writes
+	 *            whether this moves the Entities rather than reading them
+	 * @param parallel
+	 *            whether updateEntity() may run on worker threads
+	 */
+	public StubSystem(String tag, boolean writes, boolean parallel) {
+		m_filter = new SimpleEntityFilter(new String[0], new String[] { tag }, false);
+		m_writes = writes;
+		m_parallel = parallel;
+	}
+
+	/**
+	 * @return the sum of the world x of the Entities read, so the reads aren't optimized away
+	 */
+	public float getSum() {
+		return m_sum;
+	}
+
+	@Override
+	public void sceneChanged(Scene oldScene, Scene newScene) {
+	}
+
+	@Override
+	public void entityAdded(Entity entity, TreeNode parent, Scene scene) {
+	}
+
+	@Override
+	public void entityRemoved(Entity entity, TreeNode parent, Scene scene) {
+	}
+
+	@Override
+	public void entityEnabled(Entity entity, TreeNode parent, Scene scene) {
+	}
+
+	@Override
+	public void entityDisabled(Entity entity, TreeNode parent, Scene scene) {
+	}
+
+	@Override
+	public void entityMoved(Entity entity, TreeNode oldParent, TreeNode newParent, Scene scene) {
+	}
+
+	@Override
+	public void scriptAdded(Entity entity, XScript script, Scene scene) {
+	}
+
+	@Override
+	public void update(Scene scene, float time) {
+	}
+
+	@Override
+	public void updateEntity(Entity entity, Scene scene, float time) {
+		if (m_writes) {
+			entity.transform().translate(0.001f * time, 0f);
+			entity.transform().rotate(0.0001f * time);
+		} else {
+			m_sum += scene.getWorldTransforms().getX(entity);
+		}
+	}
+
+	@Override
+	public void postUpdate(Scene scene) {
+	}
+
+	@Override
+	public EntityFilter getUpdateFilter() {
+		return m_filter;
+	}
+
+	@Override
+	public EntityFilter getEntityEventFilter() {
+		return m_filter;
+	}
+
+	@Override
+	public String[] getReadComponents() {
+		return new String[] { CTransform.NAME };
+	}
+
+	@Override
+	public String[] getWrittenComponents() {
+		return m_writes ? new String[] { CTransform.NAME } : new String[0];
+	}
+
+	@Override
+	public boolean isMainThreadOnly() {
+		return false;
+	}
+
+	@Override
+	public boolean isEntityUpdateParallel() {
+		return m_parallel;
+	}
+}
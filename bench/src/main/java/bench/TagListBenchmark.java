@@ -0,0 +1,79 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.core.Signature;
+import engine.core.TagList;
+
+/**
+ * The TagList queries and copy-on-write changes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagListBenchmark {
+	private TagList m_tags;
+	private TagList m_other;
+	private TagList m_subset;
+
+	@Setup
+	public void setUp() {
+		m_tags = new TagList("enemy", "flying", "boss", "level3", "glowing", "loud");
+		m_other = new TagList("friend", "loud");
+		m_subset = new TagList("boss", "enemy");
+	}
+
+	@Benchmark
+	public boolean hasTag() {
+		return m_tags.hasTag("glowing");
+	}
+
+	@Benchmark
+	public boolean hasTagMissing() {
+		return m_tags.hasTag("sleeping");
+	}
+
+	@Benchmark
+	public boolean intersects() {
+		return m_tags.intersects(m_other);
+	}
+
+	@Benchmark
+	public boolean containsAll() {
+		return m_tags.containsAll(m_subset);
+	}
+
+	@Benchmark
+	public TagList newAdd() {
+		return m_tags.newAdd("stunned");
+	}
+
+	@Benchmark
+	public TagList newRemove() {
+		return m_tags.newRemove("boss");
+	}
+
+	@Benchmark
+	public Signature getSignature() {
+		return m_tags.getSignature();
+	}
+
+	@Benchmark
+	public TagList create() {
+		return new TagList("enemy", "flying", "boss");
+	}
+}
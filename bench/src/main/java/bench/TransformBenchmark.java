@@ -0,0 +1,101 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import commons.Transform2f;
+import commons.matrix.Vector2f;
+
+import engine.core.CTransform;
+import engine.core.Entity;
+import engine.core.Scene;
+
+/**
+ * The CTransform mutators and getters of an Entity in a Scene.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+	private CTransform m_transform;
+	private Vector2f m_vector;
+	private Transform2f m_replacement;
+	private float m_step;
+
+	@Setup
+	public void setUp() {
+		Scene scene = new BenchScene().getScene();
+		Entity parent = scene.createEntity("parent", scene);
+		Entity entity = scene.createEntity("entity", parent);
+		m_transform = entity.transform();
+		m_vector = new Vector2f(0.5f, 0.25f);
+		m_replacement = new Transform2f(1f, 2f, 0.5f, 1f, 1f);
+	}
+
+	@Benchmark
+	public CTransform translate() {
+		m_transform.translate(0.001f, 0.002f);
+		return m_transform;
+	}
+
+	@Benchmark
+	public CTransform translateVector() {
+		m_transform.translate(m_vector);
+		return m_transform;
+	}
+
+	@Benchmark
+	public CTransform setTranslation() {
+		m_step += 0.001f;
+		m_transform.setTranslation(m_step, m_step);
+		return m_transform;
+	}
+
+	@Benchmark
+	public CTransform rotate() {
+		m_transform.rotate(0.001f);
+		return m_transform;
+	}
+
+	@Benchmark
+	public CTransform setScale() {
+		m_step += 0.001f;
+		m_transform.setScale(1f + m_step, 1f);
+		return m_transform;
+	}
+
+	@Benchmark
+	public CTransform setTransform() {
+		m_transform.setTransform(m_replacement);
+		return m_transform;
+	}
+
+	@Benchmark
+	public CTransform quietSetTransform() {
+		m_transform.quietSetTransform(1f, 2f, 0.5f, 1f, 1f);
+		return m_transform;
+	}
+
+	@Benchmark
+	public Vector2f getTranslation() {
+		return m_transform.getTranslation();
+	}
+
+	@Benchmark
+	public float getX() {
+		return m_transform.getX();
+	}
+}
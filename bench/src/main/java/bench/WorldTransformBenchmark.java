@@ -0,0 +1,68 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import commons.Transform2f;
+
+import engine.core.Entity;
+import engine.core.Scene;
+import engine.core.TreeNode;
+
+/**
+ * Scene.getWorldTransform() on the leaf of a chain of Entities, when nothing has changed and when the root has moved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldTransformBenchmark {
+	@Param({ "1", "4", "16", "64" })
+	public int depth;
+
+	private Scene m_scene;
+	private Entity m_root;
+	private Entity m_leaf;
+
+	@Setup
+	public void setUp() {
+		m_scene = new BenchScene().getScene();
+		TreeNode parent = m_scene;
+		for (int i = 0; i < depth; i++) {
+			Entity entity = m_scene.createEntity("link", parent);
+			entity.transform().setTransform(new Transform2f(1f, 0f, 0.1f, 1f, 1f));
+			if (m_root == null)
+				m_root = entity;
+			parent = entity;
+		}
+		m_leaf = (Entity) parent;
+		m_scene.updateWorldTransforms();
+	}
+
+	@Benchmark
+	public Transform2f cached() {
+		return m_scene.getWorldTransform(m_leaf);
+	}
+
+	@Benchmark
+	public Transform2f rootMoved() {
+		m_root.transform().translate(0.001f, 0f);
+		Transform2f world = m_scene.getWorldTransform(m_leaf);
+		// clears the dirty list, as a frame would
+		m_scene.updateWorldTransforms();
+		return world;
+	}
+}
@@ -112,7 +112,8 @@ public class Logger {
 		m_out.println(FATAL + fatal);
 	}
 
-	private static Logger s_logger;
+	// created eagerly, so Games on different threads share one Logger without racing to create it
+	private static final Logger s_logger = new Logger(System.out);
 
 	/**
 	 * Gets an instance of the Logger to the console.
@@ -120,8 +121,6 @@ public class Logger {
 	 * @return
 	 */
 	public static Logger instance() {
-		if (s_logger == null)
-			s_logger = new Logger(System.out);
 		return s_logger;
 	}
 }
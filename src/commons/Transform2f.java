@@ -11,17 +11,18 @@ import commons.matrix.Vector2f;
  * Order applied: translate, rotation, scale.
  */
 public class Transform2f {
-	private Vector2f m_translate;
+	private float m_x;
+	private float m_y;
 	private float m_rotate;
-	private Vector2f m_scale;
+	private float m_scaleX;
+	private float m_scaleY;
 
 	/**
 	 * An empty constructor which will zero out translation and rotation and initialize a scale of (1, 1).
 	 */
 	public Transform2f() {
-		m_translate = new Vector2f(0, 0);
-		m_rotate = 0;
-		m_scale = new Vector2f(1, 1);
+		m_scaleX = 1;
+		m_scaleY = 1;
 	}
 
 	/**
@@ -32,9 +33,20 @@ public class Transform2f {
 	 * @param scale
 	 */
 	public Transform2f(Vector2f translate, float rotate, Vector2f scale) {
-		m_translate = translate;
-		m_rotate = rotate;
-		m_scale = scale;
+		this(translate.getX(), translate.getY(), rotate, scale.getX(), scale.getY());
+	}
+
+	/**
+	 * Creates a new Transform with the desired parameters.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param rotate
+	 * @param scaleX
+	 * @param scaleY
+	 */
+	public Transform2f(float x, float y, float rotate, float scaleX, float scaleY) {
+		set(x, y, rotate, scaleX, scaleY);
 	}
 
 	/**
@@ -43,9 +55,7 @@ public class Transform2f {
 	 * @param transform
 	 */
 	public Transform2f(Transform2f transform) {
-		m_translate = transform.getTranslation();
-		m_rotate = transform.getRotation();
-		m_scale = transform.getScale();
+		set(transform);
 	}
 
 	/**
@@ -57,23 +67,72 @@ public class Transform2f {
 		if (matrix.getRows() != 3 || matrix.getColumns() != 3)
 			throw new DimensionException();
 
-		m_translate = MatrixUtils.getTranslate(matrix);
+		setTranslation(MatrixUtils.getTranslate(matrix));
 		m_rotate = MatrixUtils.getRotation(matrix);
-		m_scale = MatrixUtils.getScale(matrix);
+		setScale(MatrixUtils.getScale(matrix));
+	}
+
+	/**
+	 * Sets every part of the transform.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param rotate
+	 * @param scaleX
+	 * @param scaleY
+	 */
+	public void set(float x, float y, float rotate, float scaleX, float scaleY) {
+		m_x = x;
+		m_y = y;
+		m_rotate = rotate;
+		m_scaleX = scaleX;
+		m_scaleY = scaleY;
+	}
+
+	/**
+	 * Copies another Transform2f.
+	 * 
+	 * @param transform
+	 */
+	public void set(Transform2f transform) {
+		set(transform.m_x, transform.m_y, transform.m_rotate, transform.m_scaleX, transform.m_scaleY);
 	}
 
 	/**
 	 * @return the translatation
 	 */
 	public Vector2f getTranslation() {
-		return m_translate;
+		return new Vector2f(m_x, m_y);
+	}
+
+	/**
+	 * @return the x translation
+	 */
+	public float getTranslationX() {
+		return m_x;
+	}
+
+	/**
+	 * @return the y translation
+	 */
+	public float getTranslationY() {
+		return m_y;
 	}
 
 	/**
 	 * @param translate
 	 */
 	public void setTranslation(Vector2f translate) {
-		m_translate = translate;
+		setTranslation(translate.getX(), translate.getY());
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 */
+	public void setTranslation(float x, float y) {
+		m_x = x;
+		m_y = y;
 	}
 
 	/**
@@ -94,14 +153,37 @@ public class Transform2f {
 	 * @return the scale
 	 */
 	public Vector2f getScale() {
-		return m_scale;
+		return new Vector2f(m_scaleX, m_scaleY);
+	}
+
+	/**
+	 * @return the x scale
+	 */
+	public float getScaleX() {
+		return m_scaleX;
+	}
+
+	/**
+	 * @return the y scale
+	 */
+	public float getScaleY() {
+		return m_scaleY;
 	}
 
 	/**
 	 * @param scale
 	 */
 	public void setScale(Vector2f scale) {
-		m_scale = scale;
+		setScale(scale.getX(), scale.getY());
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 */
+	public void setScale(float x, float y) {
+		m_scaleX = x;
+		m_scaleY = y;
 	}
 
 	@Override
@@ -0,0 +1,51 @@
+package engine.core;
+
+import java.util.List;
+
+/**
+ * An EntitySystem which takes Entity events in batches, so it can do bulk work such as adding many bodies to a physics
+ * World at once. When many Entities change together, such as through scene.createEntities() or scene.clear(), or
+ * when the Game delivers the events queued during a frame, a BatchedSystem gets one call with all the matching
+ * Entities instead of one call per Entity. Single changes outside of a frame still use the per-Entity calls, and moves
+ * always do.
+ */
+public interface BatchedSystem extends EntitySystem {
+	/**
+	 * Called when Entities that match the EntitySystem's EntityFilter are added to the Scene together.
+	 * 
+	 * @param entities
+	 *            the Entities, parents before their children - do not keep this List
+	 * @param scene
+	 */
+	public void entitiesAdded(List<Entity> entities, Scene scene);
+
+	/**
+	 * Called when Entities that match the EntitySystem's EntityFilter are destroyed together, in place of an
+	 * entityDisabled() for each.
+	 * 
+	 * @param entities
+	 *            the Entities, children before their parents - do not keep this List
+	 * @param scene
+	 */
+	public void entitiesRemoved(List<Entity> entities, Scene scene);
+
+	/**
+	 * Called when Entities that match the EntitySystem's EntityFilter are enabled together, in place of an
+	 * entityEnabled() for each.
+	 * 
+	 * @param entities
+	 *            the Entities - do not keep this List
+	 * @param scene
+	 */
+	public void entitiesEnabled(List<Entity> entities, Scene scene);
+
+	/**
+	 * Called when Entities that match the EntitySystem's EntityFilter are disabled together, in place of an
+	 * entityDisabled() for each.
+	 * 
+	 * @param entities
+	 *            the Entities - do not keep this List
+	 * @param scene
+	 */
+	public void entitiesDisabled(List<Entity> entities, Scene scene);
+}
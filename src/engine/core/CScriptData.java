@@ -42,6 +42,29 @@ public class CScriptData implements Component {
 		m_data.put(identifier, data);
 	}
 
+	/**
+	 * @return the data by identifier - do not modify this
+	 */
+	protected Map<String, Object> directGetData() {
+		return m_data;
+	}
+
+	/**
+	 * Removes the data for an identifier. Used when a SceneSnapshot is restored.
+	 * 
+	 * @param identifier
+	 */
+	protected void removeData(String identifier) {
+		m_data.remove(identifier);
+	}
+
+	/**
+	 * Removes all the data. Used when a pooled Entity is reused.
+	 */
+	protected void clear() {
+		m_data.clear();
+	}
+
 	/**
 	 * Returns a Builder for an empty CScriptData.
 	 */
@@ -9,12 +9,24 @@ import engine.core.exceptions.TagException;
 public class CTags implements Component {
 	public static final String NAME = "tags";
 
+	private Entity m_entity;
 	private TagList m_tags;
 
 	public CTags(TagList tags) {
 		m_tags = tags;
 	}
 
+	/**
+	 * Gives a CTags a TagList and an Entity to notify when the tags change.
+	 * 
+	 * @param entity
+	 * @param tags
+	 */
+	public CTags(Entity entity, TagList tags) {
+		m_entity = entity;
+		m_tags = tags;
+	}
+
 	/**
 	 * @return the TagList
 	 */
@@ -22,6 +34,15 @@ public class CTags implements Component {
 		return m_tags;
 	}
 
+	/**
+	 * Sets the tags without notifying the Entity. Used when a pooled Entity is reused.
+	 * 
+	 * @param tags
+	 */
+	protected void quietSetTags(TagList tags) {
+		m_tags = tags;
+	}
+
 	/**
 	 * Sets the tags.
 	 * 
@@ -31,6 +52,7 @@ public class CTags implements Component {
 		if (tags == null)
 			throw new ComponentException("Cannot set a null TagList!");
 		m_tags = tags;
+		tagsChanged();
 	}
 
 	/**
@@ -44,6 +66,7 @@ public class CTags implements Component {
 		if (m_tags.hasTag(tag))
 			throw new TagException("Cannot add same tag twice!");
 		m_tags = m_tags.newAdd(tag);
+		tagsChanged();
 	}
 
 	/**
@@ -55,6 +78,15 @@ public class CTags implements Component {
 		if (tag == null)
 			throw new TagException("Cannot remove a null tag!");
 		m_tags = m_tags.newRemove(tag);
+		tagsChanged();
+	}
+
+	/**
+	 * Tells the Entity its tags changed, so the EntitySystems can re-filter it.
+	 */
+	private void tagsChanged() {
+		if (m_entity != null)
+			m_entity.tagsChanged();
 	}
 
 	@Override
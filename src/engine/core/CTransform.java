@@ -1,5 +1,7 @@
 package engine.core;
 
+import java.util.List;
+
 import commons.Logger;
 import commons.Transform2f;
 import commons.matrix.Vector2f;
@@ -7,13 +9,23 @@ import commons.matrix.Vector2f;
 import engine.core.exceptions.ComponentException;
 
 /**
- * A Component which holds an Entity's Transform2f.
+ * A Component which holds an Entity's local transform. Once its Entity is in a Scene, a CTransform is a handle into the
+ * Scene's LocalTransformBuffer; before that it keeps the values itself.
  */
 public class CTransform implements Component {
 	public static final String NAME = "transform";
 
 	private Entity m_entity;
-	private Transform2f m_transform;
+
+	// where the transform lives while bound, or null to use the fields below
+	private LocalTransformBuffer m_buffer;
+	private int m_slot;
+
+	private float m_x;
+	private float m_y;
+	private float m_rotation;
+	private float m_scaleX;
+	private float m_scaleY;
 
 	private TransformMode m_mode;
 	private boolean m_warnings = false;
@@ -28,7 +40,7 @@ public class CTransform implements Component {
 	 * @param transform
 	 */
 	public CTransform(Transform2f transform) {
-		m_transform = transform;
+		store(transform);
 		m_warnings = true;
 	}
 
@@ -40,7 +52,7 @@ public class CTransform implements Component {
 	 */
 	public CTransform(Entity entity, Transform2f transform) {
 		m_entity = entity;
-		m_transform = transform;
+		store(transform);
 		m_warnings = false;
 	}
 
@@ -55,15 +67,44 @@ public class CTransform implements Component {
 	}
 
 	/**
-	 * Returns the raw Transform2f data. Do not modify this - call Entity.setTransform() or CTransform.setTransform()
-	 * instead.
+	 * Moves the transform into a slot of a LocalTransformBuffer, or back into the CTransform if the buffer is null.
+	 * 
+	 * @param buffer
+	 * @param slot
+	 */
+	protected void bind(LocalTransformBuffer buffer, int slot) {
+		float x = getX();
+		float y = getY();
+		float rotation = getRotation();
+		float scaleX = getScaleX();
+		float scaleY = getScaleY();
+
+		m_buffer = buffer;
+		m_slot = slot;
+		write(x, y, rotation, scaleX, scaleY);
+	}
+
+	/**
+	 * Replaces the transform and clears the TransformMode. Used when a pooled Entity is reused.
+	 * 
+	 * @param transform
+	 */
+	protected void reset(Transform2f transform) {
+		m_buffer = null;
+		store(transform);
+		m_mode = null;
+	}
+
+	/**
+	 * Returns a copy of the transform as a Transform2f. Changing it does not change the CTransform - call
+	 * Entity.setTransform() or CTransform.setTransform() instead.
 	 * 
 	 * @return
 	 */
 	protected Transform2f getTransform() {
 		if (m_warnings)
 			Logger.instance().warn("Getting transform on a unbound CTransform");
-		return m_transform;
+		return toTransform();
 	}
 
 	/**
@@ -78,10 +119,8 @@ public class CTransform implements Component {
 		if (transform == null)
 			throw new ComponentException("Cannot set a null transform!");
 
-		Transform2f oldTrans = m_transform;
-		m_transform = transform;
-		for (EntityListener listener : m_entity.getListeners())
-			listener.transformSet(m_entity, oldTrans, transform, m_entity.getScene());
+		set(transform.getTranslationX(), transform.getTranslationY(), transform.getRotation(), transform.getScaleX(),
+				transform.getScaleY());
 	}
 
 	/**
@@ -90,13 +129,29 @@ public class CTransform implements Component {
 	 * @param transform
 	 */
 	public void quietSetTransform(Transform2f transform) {
-		if (m_warnings)
-			Logger.instance().warn("Setting transform on a unbound CTransform");
-
 		if (transform == null)
 			throw new ComponentException("Cannot set a null transform!");
 
-		m_transform = transform;
+		quietSetTransform(transform.getTranslationX(), transform.getTranslationY(), transform.getRotation(),
+				transform.getScaleX(), transform.getScaleY());
+	}
+
+	/**
+	 * Sets the transform without notifying the listeners. This shouldn't be called.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param rotation
+	 * @param scaleX
+	 * @param scaleY
+	 */
+	public void quietSetTransform(float x, float y, float rotation, float scaleX, float scaleY) {
+		if (m_warnings)
+			Logger.instance().warn("Setting transform on a unbound CTransform");
+
+		write(x, y, rotation, scaleX, scaleY);
+		if (m_entity != null)
+			m_entity.markWorldDirty();
 	}
 
 	/**
@@ -117,16 +172,28 @@ public class CTransform implements Component {
 	 * @param y
 	 */
 	public void translate(float x, float y) {
-		Transform2f newTrans = new Transform2f(m_transform);
-		newTrans.setTranslation(m_transform.getTranslation().add(new Vector2f(x, y)).toVector2f());
-		setTransform(newTrans);
+		set(getX() + x, getY() + y, getRotation(), getScaleX(), getScaleY());
 	}
 
 	/**
 	 * @return the translation
 	 */
 	public Vector2f getTranslation() {
-		return m_transform.getTranslation();
+		return new Vector2f(getX(), getY());
+	}
+
+	/**
+	 * @return the x translation
+	 */
+	public float getX() {
+		return (m_buffer == null) ? m_x : m_buffer.getX(m_slot);
+	}
+
+	/**
+	 * @return the y translation
+	 */
+	public float getY() {
+		return (m_buffer == null) ? m_y : m_buffer.getY(m_slot);
 	}
 
 	/**
@@ -147,9 +214,7 @@ public class CTransform implements Component {
 	 * @param y
 	 */
 	public void setTranslation(float x, float y) {
-		Transform2f newTrans = new Transform2f(m_transform);
-		newTrans.setTranslation(new Vector2f(x, y));
-		setTransform(newTrans);
+		set(x, y, getRotation(), getScaleX(), getScaleY());
 	}
 
 	/**
@@ -158,16 +223,14 @@ public class CTransform implements Component {
 	 * @param rotate
 	 */
 	public void rotate(float rotate) {
-		Transform2f newTrans = new Transform2f(m_transform);
-		newTrans.setRotation(m_transform.getRotation() + rotate);
-		setTransform(newTrans);
+		set(getX(), getY(), getRotation() + rotate, getScaleX(), getScaleY());
 	}
 
 	/**
 	 * @return the rotation
 	 */
 	public float getRotation() {
-		return m_transform.getRotation();
+		return (m_buffer == null) ? m_rotation : m_buffer.getRotation(m_slot);
 	}
 
 	/**
@@ -176,16 +239,28 @@ public class CTransform implements Component {
 	 * @param rotation
 	 */
 	public void setRotation(float rotation) {
-		Transform2f newTrans = new Transform2f(m_transform);
-		newTrans.setRotation(rotation);
-		setTransform(newTrans);
+		set(getX(), getY(), rotation, getScaleX(), getScaleY());
 	}
 
 	/**
 	 * @return the scale
 	 */
 	public Vector2f getScale() {
-		return m_transform.getScale();
+		return new Vector2f(getScaleX(), getScaleY());
+	}
+
+	/**
+	 * @return the x scale
+	 */
+	public float getScaleX() {
+		return (m_buffer == null) ? m_scaleX : m_buffer.getScaleX(m_slot);
+	}
+
+	/**
+	 * @return the y scale
+	 */
+	public float getScaleY() {
+		return (m_buffer == null) ? m_scaleY : m_buffer.getScaleY(m_slot);
 	}
 
 	/**
@@ -207,11 +282,7 @@ public class CTransform implements Component {
 	 * @param y
 	 */
 	public void scale(float x, float y) {
-		Transform2f newTrans = new Transform2f(m_transform);
-		Vector2f oldScale = m_transform.getScale();
-		Vector2f newScale = new Vector2f(x * oldScale.getX(), y * oldScale.getY());
-		newTrans.setScale(newScale);
-		setTransform(newTrans);
+		set(getX(), getY(), getRotation(), x * getScaleX(), y * getScaleY());
 	}
 
 	/**
@@ -232,9 +303,48 @@ public class CTransform implements Component {
 	 * @param y
 	 */
 	public void setScale(float x, float y) {
-		Transform2f newTrans = new Transform2f(m_transform);
-		newTrans.setScale(new Vector2f(x, y));
-		setTransform(newTrans);
+		set(getX(), getY(), getRotation(), x, y);
+	}
+
+	/**
+	 * Changes the transform and notifies the listeners. Transform2fs are only built if there are listeners to receive
+	 * them.
+	 */
+	private void set(float x, float y, float rotation, float scaleX, float scaleY) {
+		List<EntityListener> listeners = m_entity.getListeners();
+		if (listeners.isEmpty()) {
+			write(x, y, rotation, scaleX, scaleY);
+			m_entity.markWorldDirty();
+			return;
+		}
+
+		Transform2f oldTrans = toTransform();
+		write(x, y, rotation, scaleX, scaleY);
+		m_entity.markWorldDirty();
+		Transform2f newTrans = toTransform();
+		for (EntityListener listener : listeners)
+			listener.transformSet(m_entity, oldTrans, newTrans, m_entity.getScene());
+	}
+
+	private void write(float x, float y, float rotation, float scaleX, float scaleY) {
+		if (m_buffer != null) {
+			m_buffer.set(m_slot, x, y, rotation, scaleX, scaleY);
+		} else {
+			m_x = x;
+			m_y = y;
+			m_rotation = rotation;
+			m_scaleX = scaleX;
+			m_scaleY = scaleY;
+		}
+	}
+
+	private void store(Transform2f transform) {
+		write(transform.getTranslationX(), transform.getTranslationY(), transform.getRotation(), transform.getScaleX(),
+				transform.getScaleY());
+	}
+
+	private Transform2f toTransform() {
+		return new Transform2f(getX(), getY(), getRotation(), getScaleX(), getScaleY());
 	}
 
 	/**
@@ -251,6 +361,8 @@ public class CTransform implements Component {
 	 */
 	public void setTransformMode(TransformMode mode) {
 		m_mode = mode;
+		if (m_entity != null)
+			m_entity.markWorldDirty();
 	}
 
 	@Override
@@ -263,7 +375,7 @@ public class CTransform implements Component {
 		ComponentBuilder<CTransform> builder = new ComponentBuilder<CTransform>() {
 			@Override
 			public CTransform build() {
-				return new CTransform(new Transform2f(m_transform));
+				return new CTransform(toTransform());
 			}
 
 			@Override
@@ -276,6 +388,6 @@ public class CTransform implements Component {
 
 	@Override
 	public String toString() {
-		return m_transform.toString();
+		return toTransform().toString();
 	}
 }
@@ -0,0 +1,24 @@
+package engine.core;
+
+import java.util.List;
+
+import engine.core.format.EntityDef;
+
+/**
+ * Supplies the Entities of the chunks of a large level to a ChunkStreamer, for example by decoding one file per chunk
+ * with a Format.
+ */
+public interface ChunkSource {
+	/**
+	 * Decodes the Entities of a chunk. Called on a loader thread, so it must not touch the Scene, or assets which need
+	 * the GL context, and may be called for several chunks at once.
+	 *
+	 * @param x
+	 *            the column of the chunk
+	 * @param y
+	 *            the row of the chunk
+	 * @return the Entities, with parent paths relative to the chunk and parents before their children, or null if
+	 *         there is nothing in the chunk
+	 */
+	public List<EntityDef> loadChunk(int x, int y);
+}
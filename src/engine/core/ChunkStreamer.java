@@ -0,0 +1,528 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import commons.Logger;
+import commons.Transform2f;
+
+import engine.core.exceptions.SceneException;
+import engine.core.format.EntityDef;
+
+/**
+ * Streams a level which is too large to keep in one Scene, split into square chunks, around a focus such as the camera.
+ * Chunks near the focus are decoded by a ChunkSource and compiled into EntityPlans on loader threads, then
+ * instantiated on the Game's thread by update(), a few per frame within a time budget. Chunks which get far from the
+ * focus are destroyed. Each chunk is a top level Entity named "chunk x y" with the chunk's Entities under it, so the
+ * EntitySystems are told about a chunk being added or removed in one batch.
+ *
+ * The number of chunks and of the Entities they are created with are bounded, with the chunks farthest from the focus
+ * unloaded first to make room. Entities the Scripts of a chunk create under it are destroyed with it, but not counted.
+ */
+public class ChunkStreamer {
+	private static final AtomicInteger s_streamers = new AtomicInteger();
+
+	private Scene m_scene;
+	private ChunkSource m_source;
+	private float m_chunkSize;
+	private ExecutorService m_loaders;
+
+	private int m_loadRadius = 1;
+	private int m_unloadRadius = 2;
+	private int m_maxChunks = 64;
+	private int m_maxEntities = Integer.MAX_VALUE;
+	private long m_budgetNanos = 2000000L;
+
+	private Map<Long, Chunk> m_chunks;
+	// the offsets of the chunks within the load radius, nearest first
+	private int[][] m_offsets;
+	private int m_entityCount;
+
+	// the chunk the focus was in at the last update
+	private int m_focusX;
+	private int m_focusY;
+
+	/**
+	 * Initializes a ChunkStreamer with one loader thread.
+	 *
+	 * @param scene
+	 * @param source
+	 * @param chunkSize
+	 *            the width and height of a chunk in world units
+	 */
+	public ChunkStreamer(Scene scene, ChunkSource source, float chunkSize) {
+		this(scene, source, chunkSize, 1);
+	}
+
+	/**
+	 * Initializes a ChunkStreamer.
+	 *
+	 * @param scene
+	 * @param source
+	 * @param chunkSize
+	 *            the width and height of a chunk in world units
+	 * @param threads
+	 *            the number of chunks which can be loaded at once
+	 */
+	public ChunkStreamer(Scene scene, ChunkSource source, float chunkSize, int threads) {
+		if (scene == null)
+			throw new SceneException("Cannot stream chunks into a null Scene!");
+		if (source == null)
+			throw new SceneException("Cannot stream chunks from a null ChunkSource!");
+		if (chunkSize <= 0)
+			throw new SceneException("Chunk size must be positive!");
+		if (threads < 1)
+			throw new SceneException("A ChunkStreamer needs at least one loader thread!");
+		m_scene = scene;
+		m_source = source;
+		m_chunkSize = chunkSize;
+		m_chunks = new HashMap<Long, Chunk>();
+		m_offsets = makeOffsets(m_loadRadius);
+
+		final int streamer = s_streamers.incrementAndGet();
+		m_loaders = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private AtomicInteger m_count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "ChunkStreamer-" + streamer + "-" + m_count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Sets how far around the focus chunks are loaded and unloaded, in chunks. Unloading farther out than loading keeps
+	 * chunks from being loaded and unloaded over and over at a border.
+	 *
+	 * @param loadRadius
+	 *            chunks at most this many chunks away from the focus chunk on both axes are loaded
+	 * @param unloadRadius
+	 *            chunks more than this many chunks away on either axis are unloaded
+	 */
+	public void setRadius(int loadRadius, int unloadRadius) {
+		if (loadRadius < 0)
+			throw new SceneException("Load radius cannot be negative!");
+		if (unloadRadius < loadRadius)
+			throw new SceneException("Unload radius cannot be less than the load radius!");
+		m_loadRadius = loadRadius;
+		m_unloadRadius = unloadRadius;
+		m_offsets = makeOffsets(loadRadius);
+	}
+
+	/**
+	 * Sets the most chunks kept, counting the ones being loaded. 64 by default.
+	 *
+	 * @param maxChunks
+	 */
+	public void setMaxChunks(int maxChunks) {
+		if (maxChunks < 1)
+			throw new SceneException("Must allow at least one chunk!");
+		m_maxChunks = maxChunks;
+	}
+
+	/**
+	 * Sets the most Entities the loaded chunks may be created with. A chunk which doesn't fit waits until farther chunks
+	 * are unloaded, while other chunks which fit are still instantiated. A chunk with more Entities than this is logged
+	 * and left empty. Unbounded by default.
+	 *
+	 * @param maxEntities
+	 */
+	public void setMaxEntities(int maxEntities) {
+		if (maxEntities < 1)
+			throw new SceneException("Must allow at least one Entity!");
+		m_maxEntities = maxEntities;
+	}
+
+	/**
+	 * Sets how long update() may spend instantiating chunks. A chunk is never split, so at least one is instantiated
+	 * per update() if one is ready, however long it takes. 2 milliseconds by default.
+	 *
+	 * @param budgetMillis
+	 */
+	public void setFrameBudget(float budgetMillis) {
+		if (budgetMillis < 0)
+			throw new SceneException("Frame budget cannot be negative!");
+		m_budgetNanos = (long) (budgetMillis * 1000000);
+	}
+
+	private static int[][] makeOffsets(int radius) {
+		int side = radius * 2 + 1;
+		int[][] offsets = new int[side * side][];
+		int i = 0;
+		for (int x = -radius; x <= radius; x++) {
+			for (int y = -radius; y <= radius; y++)
+				offsets[i++] = new int[] { x, y };
+		}
+		Arrays.sort(offsets, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return (a[0] * a[0] + a[1] * a[1]) - (b[0] * b[0] + b[1] * b[1]);
+			}
+		});
+		return offsets;
+	}
+
+	/**
+	 * Loads and unloads chunks around a focus. Call once per frame from the Game's thread, for example from a
+	 * GameLoop's FrameListener. Outside of Game.update() the Entities are added straight away; during it they are
+	 * deferred like any other change.
+	 *
+	 * @param focusX
+	 *            the world x of the focus
+	 * @param focusY
+	 *            the world y of the focus
+	 */
+	public void update(float focusX, float focusY) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot stream chunks during a parallel updateEntity()!";
+		if (m_loaders.isShutdown())
+			throw new SceneException("Cannot update a ChunkStreamer which was shut down!");
+		m_focusX = (int) Math.floor(focusX / m_chunkSize);
+		m_focusY = (int) Math.floor(focusY / m_chunkSize);
+
+		unloadFar();
+		requestNear();
+		instantiateLoaded();
+	}
+
+	/**
+	 * Follows an Entity, such as the one with the camera.
+	 *
+	 * @param focus
+	 */
+	public void update(Entity focus) {
+		Transform2f transform = m_scene.getWorldTransform(focus);
+		update(transform.getTranslationX(), transform.getTranslationY());
+	}
+
+	/**
+	 * Destroys the chunks outside of the unload radius, in one batch.
+	 */
+	private void unloadFar() {
+		List<Chunk> far = new ArrayList<Chunk>();
+		for (Chunk chunk : m_chunks.values()) {
+			if (distance(chunk) > m_unloadRadius)
+				far.add(chunk);
+		}
+		unload(far);
+	}
+
+	/**
+	 * Starts loading the chunks within the load radius, nearest first, making room by unloading farther ones.
+	 */
+	private void requestNear() {
+		for (int[] offset : m_offsets) {
+			int x = m_focusX + offset[0];
+			int y = m_focusY + offset[1];
+			Long key = key(x, y);
+			if (m_chunks.containsKey(key))
+				continue;
+			if (m_chunks.size() >= m_maxChunks && !unloadFarthest(distance(x, y)))
+				return;
+
+			Chunk chunk = new Chunk(x, y);
+			chunk.m_loading = m_loaders.submit(new Loader(m_source, x, y));
+			m_chunks.put(key, chunk);
+		}
+	}
+
+	/**
+	 * Instantiates the chunks which finished loading, nearest first, until the frame budget runs out.
+	 */
+	private void instantiateLoaded() {
+		List<Chunk> ready = new ArrayList<Chunk>();
+		for (Chunk chunk : m_chunks.values()) {
+			if (chunk.m_loading != null && chunk.m_loading.isDone())
+				ready.add(chunk);
+		}
+		if (ready.isEmpty())
+			return;
+		sortByDistance(ready);
+
+		long start = System.nanoTime();
+		boolean first = true;
+		for (Chunk chunk : ready) {
+			if (!first && System.nanoTime() - start >= m_budgetNanos)
+				return;
+			// unloaded to make room for a nearer chunk
+			if (m_chunks.get(key(chunk.m_x, chunk.m_y)) != chunk)
+				continue;
+
+			EntityPlan plan = finishLoading(chunk);
+			if (plan == null)
+				continue;
+			if (plan.getSize() > m_maxEntities) {
+				Logger.instance().error("Chunk " + chunk.m_x + " " + chunk.m_y + " has " + plan.getSize()
+						+ " Entities, more than the most allowed, so it is left empty");
+				chunk.m_plan = null;
+				chunk.m_loading = null;
+				continue;
+			}
+			if (!makeRoom(chunk, plan.getSize()))
+				continue;
+			first = false;
+			chunk.m_loading = null;
+			chunk.m_root = m_scene.instantiate(plan, chunk.getName(), m_scene);
+			chunk.m_generation = chunk.m_root.getGeneration();
+			chunk.m_size = plan.getSize();
+			chunk.m_plan = null;
+			m_entityCount += chunk.m_size;
+		}
+	}
+
+	/**
+	 * Unloads chunks farther than a chunk until its Entities fit.
+	 *
+	 * @return whether they fit; if not, the chunk waits for farther chunks to be unloaded, and other chunks which fit
+	 *         may still be instantiated
+	 */
+	private boolean makeRoom(Chunk chunk, int size) {
+		while (m_entityCount + size > m_maxEntities) {
+			if (!unloadFarthest(distance(chunk)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the chunk's plan, or null if it is empty or failed to load, in which case it stays empty until unloaded
+	 */
+	private EntityPlan finishLoading(Chunk chunk) {
+		if (chunk.m_plan != null)
+			return chunk.m_plan;
+		try {
+			chunk.m_plan = chunk.m_loading.get();
+		} catch (ExecutionException e) {
+			Logger.instance().error("Failed to load chunk " + chunk.m_x + " " + chunk.m_y + ": " + e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		if (chunk.m_plan == null)
+			chunk.m_loading = null;
+		return chunk.m_plan;
+	}
+
+	/**
+	 * Unloads the chunk farthest from the focus if it is farther than a distance.
+	 *
+	 * @return whether a chunk was unloaded
+	 */
+	private boolean unloadFarthest(int distance) {
+		Chunk farthest = null;
+		for (Chunk chunk : m_chunks.values()) {
+			if (distance(chunk) > distance && (farthest == null || distanceSquared(chunk) > distanceSquared(farthest)))
+				farthest = chunk;
+		}
+		if (farthest == null)
+			return false;
+		unload(Arrays.asList(farthest));
+		return true;
+	}
+
+	/**
+	 * Stops loading or destroys chunks, destroying their Entities in one batch.
+	 */
+	private void unload(List<Chunk> chunks) {
+		if (chunks.isEmpty())
+			return;
+		List<Entity> roots = new ArrayList<Entity>();
+		for (Chunk chunk : chunks) {
+			m_chunks.remove(key(chunk.m_x, chunk.m_y));
+			if (chunk.m_loading != null)
+				chunk.m_loading.cancel(false);
+			if (chunk.m_root == null)
+				continue;
+			m_entityCount -= chunk.m_size;
+			// the Entity may have been destroyed by something else already
+			if (chunk.m_root.getGeneration() == chunk.m_generation && m_scene.contains(chunk.m_root))
+				roots.add(chunk.m_root);
+		}
+		if (!roots.isEmpty())
+			m_scene.destroyEntities(roots);
+	}
+
+	/**
+	 * Unloads every chunk.
+	 */
+	public void unloadAll() {
+		unload(new ArrayList<Chunk>(m_chunks.values()));
+	}
+
+	/**
+	 * Unloads every chunk and stops the loader threads.
+	 */
+	public void shutdown() {
+		unloadAll();
+		m_loaders.shutdownNow();
+	}
+
+	/**
+	 * Waits for the chunks being loaded to finish loading, so the next update() can instantiate them. Useful before
+	 * the first frame, so the level starts out loaded around the focus.
+	 *
+	 * @param timeoutMillis
+	 *            how long to wait
+	 * @return whether every chunk finished loading in time
+	 */
+	public boolean awaitLoading(long timeoutMillis) {
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		for (Chunk chunk : new ArrayList<Chunk>(m_chunks.values())) {
+			if (chunk.m_loading == null)
+				continue;
+			try {
+				chunk.m_loading.get(Math.max(end - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				return false;
+			} catch (ExecutionException e) {
+				// reported when the chunk is instantiated
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return the top level Entity of a chunk, or null if it isn't loaded
+	 */
+	public Entity getChunk(int x, int y) {
+		Chunk chunk = m_chunks.get(key(x, y));
+		return (chunk == null) ? null : chunk.m_root;
+	}
+
+	/**
+	 * @param x
+	 * @param y
+	 * @return whether a chunk is loaded or being loaded
+	 */
+	public boolean isRequested(int x, int y) {
+		return m_chunks.containsKey(key(x, y));
+	}
+
+	/**
+	 * @return the number of chunks kept, counting the ones being loaded
+	 */
+	public int getChunkCount() {
+		return m_chunks.size();
+	}
+
+	/**
+	 * @return the number of Entities the loaded chunks were created with
+	 */
+	public int getEntityCount() {
+		return m_entityCount;
+	}
+
+	/**
+	 * @return the width and height of a chunk in world units
+	 */
+	public float getChunkSize() {
+		return m_chunkSize;
+	}
+
+	private static Long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+
+	private int distance(int x, int y) {
+		return Math.max(Math.abs(x - m_focusX), Math.abs(y - m_focusY));
+	}
+
+	private int distance(Chunk chunk) {
+		return distance(chunk.m_x, chunk.m_y);
+	}
+
+	private int distanceSquared(Chunk chunk) {
+		int dx = chunk.m_x - m_focusX;
+		int dy = chunk.m_y - m_focusY;
+		return dx * dx + dy * dy;
+	}
+
+	private void sortByDistance(List<Chunk> chunks) {
+		Collections.sort(chunks, new Comparator<Chunk>() {
+			@Override
+			public int compare(Chunk a, Chunk b) {
+				return distanceSquared(a) - distanceSquared(b);
+			}
+		});
+	}
+
+	/**
+	 * A chunk being loaded, waiting to be instantiated, or in the Scene.
+	 */
+	private static class Chunk {
+		private int m_x;
+		private int m_y;
+		private Future<EntityPlan> m_loading;
+		// loaded, but waiting for room
+		private EntityPlan m_plan;
+		private Entity m_root;
+		private int m_generation;
+		private int m_size;
+
+		public Chunk(int x, int y) {
+			m_x = x;
+			m_y = y;
+		}
+
+		public String getName() {
+			return "chunk " + m_x + " " + m_y;
+		}
+	}
+
+	/**
+	 * Decodes a chunk and compiles it into one EntityPlan, on a loader thread.
+	 */
+	private static class Loader implements Callable<EntityPlan> {
+		private ChunkSource m_source;
+		private int m_x;
+		private int m_y;
+
+		public Loader(ChunkSource source, int x, int y) {
+			m_source = source;
+			m_x = x;
+			m_y = y;
+		}
+
+		@Override
+		public EntityPlan call() {
+			List<EntityDef> defs = m_source.loadChunk(m_x, m_y);
+			if (defs == null || defs.isEmpty())
+				return null;
+
+			EntityBuilder root = new EntityBuilder();
+			for (EntityDef def : defs) {
+				EntityBuilder parent = root;
+				for (String name : def.getParentPath()) {
+					parent = parent.getEntityBuilders().get(name);
+					if (parent == null)
+						throw new SceneException("Chunk " + m_x + " " + m_y + " has no parent " + def.getParentPath()
+								+ " for Entity: " + def.getName());
+				}
+				if (parent.getEntityBuilders().containsKey(def.getName()))
+					throw new SceneException("Chunk " + m_x + " " + m_y + " has two Entities named: " + def.getName());
+				parent.addChildBuilder(def.getName(), def.getBuilder());
+			}
+			return new EntityPlan(root);
+		}
+	}
+}
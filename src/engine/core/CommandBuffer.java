@@ -0,0 +1,101 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import engine.core.script.XScript;
+
+/**
+ * Records the structural changes made to a Scene while it is deferring them, so they can be applied in one batch at a
+ * sync point. Recording is synchronized, so EntitySystems running at the same time can all record changes.
+ */
+public class CommandBuffer {
+	protected static final int ATTACH = 0;
+	protected static final int ADD_SCRIPTS = 1;
+	protected static final int DESTROY = 2;
+	protected static final int MOVE = 3;
+	protected static final int ENABLE = 4;
+	protected static final int DISABLE = 5;
+
+	/**
+	 * A recorded change.
+	 */
+	protected static class Command {
+		protected final int type;
+		protected final Entity entity;
+		protected final TreeNode parent;
+		protected final List<XScript> scripts;
+
+		private Command(int type, Entity entity, TreeNode parent, List<XScript> scripts) {
+			this.type = type;
+			this.entity = entity;
+			this.parent = parent;
+			this.scripts = scripts;
+		}
+	}
+
+	private List<Command> m_commands;
+	// the Entities which have been created but not attached yet
+	private Set<Entity> m_pending;
+
+	/**
+	 * Initializes an empty CommandBuffer.
+	 */
+	protected CommandBuffer() {
+		m_commands = new ArrayList<Command>();
+		m_pending = new HashSet<Entity>();
+	}
+
+	/**
+	 * Records a change.
+	 *
+	 * @param type
+	 * @param entity
+	 * @param parent
+	 *            the parent for ATTACH and MOVE
+	 * @param scripts
+	 *            the Scripts for ADD_SCRIPTS
+	 */
+	protected synchronized void add(int type, Entity entity, TreeNode parent, List<XScript> scripts) {
+		m_commands.add(new Command(type, entity, parent, scripts));
+		if (type == ATTACH)
+			m_pending.add(entity);
+	}
+
+	/**
+	 * @param node
+	 * @return whether the TreeNode is an Entity that has been created but not attached yet
+	 */
+	protected synchronized boolean isPending(TreeNode node) {
+		return m_pending.contains(node);
+	}
+
+	/**
+	 * Takes all the recorded changes, in the order they were recorded.
+	 *
+	 * @return the changes
+	 */
+	protected synchronized List<Command> drain() {
+		List<Command> commands = m_commands;
+		m_commands = new ArrayList<Command>();
+		return commands;
+	}
+
+	/**
+	 * Called when a pending Entity is attached.
+	 *
+	 * @param entity
+	 */
+	protected synchronized void attached(Entity entity) {
+		m_pending.remove(entity);
+	}
+
+	/**
+	 * @return whether there are no recorded changes
+	 */
+	protected synchronized boolean isEmpty() {
+		return m_commands.isEmpty();
+	}
+}
@@ -0,0 +1,38 @@
+package engine.core;
+
+/**
+ * Writes the simulation state of one type of Component to a SceneSnapshot and reads it back. Added to a Scene with
+ * addSnapshotCodec(); Components without a codec are left as they are by restore().
+ *
+ * @param <T>
+ *            the type of Component
+ */
+public interface ComponentCodec<T extends Component> {
+	/**
+	 * Returns the name of the Component.
+	 *
+	 * @return
+	 */
+	public String getName();
+
+	/**
+	 * Writes the state of a Component.
+	 *
+	 * @param entity
+	 *            the Entity the Component is on
+	 * @param component
+	 * @param out
+	 */
+	public void write(Entity entity, T component, SnapshotBuffer out);
+
+	/**
+	 * Reads back the state written by write(), into the Component of the same Entity or of one re-created in its place.
+	 * Must read exactly what write() wrote.
+	 *
+	 * @param entity
+	 *            the Entity the Component is on
+	 * @param component
+	 * @param in
+	 */
+	public void read(Entity entity, T component, SnapshotBuffer in);
+}
@@ -11,8 +11,11 @@ import engine.core.exceptions.ComponentException;
  * Manages the components and data of an Entity.
  */
 public class ComponentManager {
+	private Entity m_entity;
 	// maps the name of the Component to the Component
 	private Map<String, Component> m_components;
+	// the ids of the Component names, for EntityFilters
+	private Signature m_signature;
 
 	/**
 	 * Initializes the ComponentManager.
@@ -24,7 +27,36 @@ public class ComponentManager {
 	 * @param script
 	 */
 	public ComponentManager(Entity entity, List<Component> components) {
+		this(entity, components, null);
+	}
+
+	/**
+	 * Initializes the ComponentManager with the ids of its Component names already worked out, such as by an
+	 * EntityPlan.
+	 * 
+	 * @param entity
+	 * @param components
+	 * @param signature
+	 *            the ids of the Component names including the default Components, or null to work them out
+	 */
+	protected ComponentManager(Entity entity, List<Component> components, Signature signature) {
+		m_entity = entity;
 		m_components = new HashMap<String, Component>();
+		m_signature = new Signature();
+		reset(components, signature);
+	}
+
+	/**
+	 * Replaces the Components, keeping the Entity's own CTags, CTransform and CScriptData, and using the ids of their
+	 * names if they have already been worked out. Also used when a pooled Entity is reused.
+	 * 
+	 * @param components
+	 * @param signature
+	 *            the ids of the Component names including the default Components, or null to work them out
+	 */
+	protected void reset(List<Component> components, Signature signature) {
+		Entity entity = m_entity;
+		m_components.clear();
 
 		m_components.put(entity.tags().getName(), entity.tags());
 		m_components.put(entity.transform().getName(), entity.transform());
@@ -36,6 +68,21 @@ public class ComponentManager {
 
 			m_components.put(name, comp);
 		}
+
+		if (signature != null) {
+			m_signature.copy(signature);
+			return;
+		}
+		m_signature.clearAll();
+		for (String name : m_components.keySet())
+			m_signature.set(SignatureRegistry.componentId(name));
+	}
+
+	/**
+	 * @return the ids of the Component names - do not modify this
+	 */
+	public Signature getSignature() {
+		return m_signature;
 	}
 
 	/**
@@ -45,6 +92,8 @@ public class ComponentManager {
 	public Component get(String name) {
 		if (name == null)
 			throw new ComponentException("Cannot get a Component with a null String!");
+		assert ParallelAccess.mayAccess(m_entity, name) : "Parallel updateEntity() touched undeclared Component " + name
+				+ " of " + m_entity;
 		if (!m_components.containsKey(name))
 			throw new ComponentException("No Component exists for the name: " + name);
 
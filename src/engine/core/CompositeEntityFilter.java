@@ -1,17 +1,47 @@
 package engine.core;
 
 /**
- * Returns true if any of the subfilters return true.
+ * Returns true if any of the subfilters return true. If every subfilter is a SimpleEntityFilter, their Signatures are
+ * tested directly.
  */
 public class CompositeEntityFilter implements EntityFilter {
 	private EntityFilter[] m_filters;
 
+	// the compiled subfilters, or null if a subfilter isn't a SimpleEntityFilter
+	private Signature[] m_signatures;
+	private boolean[] m_topLevelOnly;
+
 	public CompositeEntityFilter(EntityFilter[] filters) {
 		m_filters = filters;
+		compile();
+	}
+
+	private void compile() {
+		Signature[] signatures = new Signature[m_filters.length];
+		boolean[] topLevelOnly = new boolean[m_filters.length];
+		for (int i = 0; i < m_filters.length; i++) {
+			if (!(m_filters[i] instanceof SimpleEntityFilter))
+				return;
+			SimpleEntityFilter filter = (SimpleEntityFilter) m_filters[i];
+			signatures[i] = filter.getSignature();
+			topLevelOnly[i] = filter.isTopLevelOnly();
+		}
+		m_signatures = signatures;
+		m_topLevelOnly = topLevelOnly;
 	}
 
 	@Override
 	public boolean matches(Entity entity) {
+		if (m_signatures != null) {
+			Signature signature = entity.getSignature();
+			boolean topLevel = entity.tree().getParent() instanceof Scene;
+			for (int i = 0; i < m_signatures.length; i++) {
+				if ((topLevel || !m_topLevelOnly[i]) && signature.containsAll(m_signatures[i]))
+					return true;
+			}
+			return false;
+		}
+
 		for (EntityFilter filter : m_filters)
 			if (filter.matches(entity))
 				return true;
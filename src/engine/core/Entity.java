@@ -1,5 +1,6 @@
 package engine.core;
 
+import java.awt.geom.AffineTransform;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,6 +30,20 @@ public class Entity implements TreeNode {
 	private CScriptData m_scriptData;
 	// listeners for transformation / child changes
 	private List<EntityListener> m_listeners;
+	// the ids of the Components and tags, for EntityFilters
+	private Signature m_signature;
+
+	// the Entity's index into the Scene's per-Entity arrays
+	private int m_slot = -1;
+	// counts the times the Entity has been destroyed, so EntityHandles to a pooled Entity can tell it was reused
+	private int m_generation;
+	// changes when the Entity or an ancestor is renamed or moved, so EntityPaths through it resolve again
+	private int m_pathVersion;
+
+	// the cached world transform, recomputed by the Scene when dirty
+	private AffineTransform m_worldMatrix = new AffineTransform();
+	private float m_worldRotation;
+	private boolean m_worldDirty = true;
 
 	// the name of the Entity
 	private String m_name;
@@ -44,16 +59,7 @@ public class Entity implements TreeNode {
 	 * @param components
 	 */
 	protected Entity(String name, Scene scene, TreeNode parent, List<Component> components) {
-		m_name = name;
-		m_scene = scene;
-		m_listeners = new ArrayList<EntityListener>();
-		m_tags = new CTags(new TagList());
-		m_transform = new CTransform(this, new Transform2f());
-		m_scriptData = new CScriptData();
-
-		m_tree = new TreeManager(this, parent);
-		m_components = new ComponentManager(this, components);
-		m_scripts = new ScriptManager(this);
+		this(name, scene, parent, components, new TagList(), new Transform2f());
 	}
 
 	/**
@@ -63,16 +69,31 @@ public class Entity implements TreeNode {
 	 * @param components
 	 */
 	protected Entity(String name, Scene scene, TreeNode parent, List<Component> components, TagList tags, Transform2f transform) {
+		this(name, scene, parent, components, tags, transform, null);
+	}
+
+	/**
+	 * Constructs a new Entity whose Component ids have already been worked out.
+	 * 
+	 * @param parent
+	 * @param components
+	 * @param componentSignature
+	 *            the ids of the Component names including the default Components, or null to work them out
+	 */
+	protected Entity(String name, Scene scene, TreeNode parent, List<Component> components, TagList tags,
+			Transform2f transform, Signature componentSignature) {
 		m_name = name;
 		m_scene = scene;
 		m_listeners = new ArrayList<EntityListener>();
 		m_scriptData = new CScriptData();
-		m_tags = new CTags(tags);
+		m_tags = new CTags(this, tags);
 		m_transform = new CTransform(this, transform);
 
 		m_tree = new TreeManager(this, parent);
-		m_components = new ComponentManager(this, components);
+		m_components = new ComponentManager(this, components, componentSignature);
 		m_scripts = new ScriptManager(this);
+		m_signature = new Signature();
+		buildSignature();
 	}
 
 	/**
@@ -99,6 +120,154 @@ public class Entity implements TreeNode {
 		m_transform = null;
 		m_listeners.clear();
 		m_destroyed = true;
+		m_generation++;
+	}
+
+	/**
+	 * Marks the Entity destroyed but keeps its structures, so an EntityPool can reuse it.
+	 */
+	protected void retire() {
+		m_listeners.clear();
+		m_destroyed = true;
+		m_generation++;
+	}
+
+	/**
+	 * Brings a retired Entity back as if it had just been constructed, possibly in another Scene than the one it was
+	 * retired from.
+	 * 
+	 * @param name
+	 * @param scene
+	 * @param parent
+	 * @param components
+	 * @param tags
+	 * @param transform
+	 * @param componentSignature
+	 *            the ids of the Component names including the default Components, or null to work them out
+	 */
+	protected void recycle(String name, Scene scene, TreeNode parent, List<Component> components, TagList tags,
+			Transform2f transform, Signature componentSignature) {
+		m_name = name;
+		m_scene = scene;
+		m_tree.reset(parent);
+		m_scripts.reset();
+		m_tags.quietSetTags(tags);
+		m_transform.reset(transform);
+		m_scriptData.clear();
+		m_components.reset(components, componentSignature);
+		buildSignature();
+
+		m_worldDirty = true;
+		m_active = true;
+		m_destroyed = false;
+	}
+
+	/**
+	 * @return the number of times this Entity has been destroyed; a pooled Entity is reused with a new generation
+	 */
+	public int getGeneration() {
+		return m_generation;
+	}
+
+	/**
+	 * @return the version of the path to this Entity, which changes when it or an ancestor is renamed or moved
+	 */
+	protected int getPathVersion() {
+		return m_pathVersion;
+	}
+
+	/**
+	 * Changes the path version of this Entity and all its descendants, as their paths are no longer what they were.
+	 */
+	protected void pathChanged() {
+		m_pathVersion++;
+		for (Entity child : m_tree.getChildren())
+			child.pathChanged();
+	}
+
+	/**
+	 * Marks the cached world transform of this Entity and all its descendants as stale. A dirty Entity always has
+	 * dirty descendants, so the walk stops at Entities which are already dirty.
+	 */
+	protected void markWorldDirty() {
+		if (m_worldDirty)
+			return;
+		m_worldDirty = true;
+		if (m_scene != null)
+			m_scene.worldTransformDirtied(this);
+		for (Entity child : m_tree.getChildren())
+			child.markWorldDirty();
+	}
+
+	/**
+	 * @return whether the cached world transform is stale
+	 */
+	protected boolean isWorldDirty() {
+		return m_worldDirty;
+	}
+
+	/**
+	 * @return the cached world matrix, which the Scene updates in place
+	 */
+	protected AffineTransform getWorldMatrix() {
+		return m_worldMatrix;
+	}
+
+	/**
+	 * @return the cached accumulated world rotation
+	 */
+	protected float getWorldRotation() {
+		return m_worldRotation;
+	}
+
+	/**
+	 * Stores the accumulated rotation of a freshly computed world matrix and clears the dirty flag.
+	 * 
+	 * @param rotation
+	 */
+	protected void worldTransformUpdated(float rotation) {
+		m_worldRotation = rotation;
+		m_worldDirty = false;
+	}
+
+	/**
+	 * @return the Entity's index into the Scene's per-Entity arrays, such as the WorldTransformBuffer
+	 */
+	public int getSlot() {
+		return m_slot;
+	}
+
+	/**
+	 * Sets the Entity's index into the Scene's per-Entity arrays.
+	 * 
+	 * @param slot
+	 */
+	protected void setSlot(int slot) {
+		m_slot = slot;
+	}
+
+	/**
+	 * Called by the CTags when the tags change.
+	 */
+	protected void tagsChanged() {
+		buildSignature();
+		if (m_scene != null)
+			m_scene.getGame().entityTagsChanged(this, m_scene);
+	}
+
+	/**
+	 * Combines the Component ids and the tag ids.
+	 */
+	private void buildSignature() {
+		m_signature.copy(m_components.getSignature());
+		m_signature.or(m_tags.getTags().getSignature());
+	}
+
+	/**
+	 * @return the ids of the Components and tags this Entity has - do not modify this
+	 */
+	public Signature getSignature() {
+		return m_signature;
 	}
 
 	/**
@@ -114,6 +283,7 @@ public class Entity implements TreeNode {
 	 * @param listener
 	 */
 	public void addListener(EntityListener listener) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot change the listeners of an Entity during a parallel updateEntity()!";
 		if (listener == null)
 			throw new EntityException("Cannot add a null EntityListener!");
 
@@ -126,6 +296,7 @@ public class Entity implements TreeNode {
 	 * @param listener
 	 */
 	public void removeListener(EntityListener listener) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot change the listeners of an Entity during a parallel updateEntity()!";
 		if (listener == null)
 			throw new EntityException("Cannot remove a null EntityListener!");
 		if (!m_listeners.contains(listener))
@@ -168,8 +339,10 @@ public class Entity implements TreeNode {
 	 * @param name
 	 */
 	public void setName(String name) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot rename an Entity during a parallel updateEntity()!";
 		m_tree.getParent().childNameChanged(this, m_name, name);
 		m_name = name;
+		pathChanged();
 	}
 
 	@Override
@@ -195,6 +368,8 @@ public class Entity implements TreeNode {
 	 * @return the CTransform
 	 */
 	public CTransform transform() {
+		assert ParallelAccess.mayAccess(this, CTransform.NAME) : "Parallel updateEntity() touched undeclared transform of "
+				+ this;
 		return m_transform;
 	}
 
@@ -0,0 +1,281 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the Entity events of a frame so they can be given to the EntitySystems in batches once the frame's
+ * structural changes are done. The events of each Entity are coalesced into what changed overall:
+ * <ul>
+ * <li>an Entity added and destroyed in the same frame is never seen;</li>
+ * <li>an Entity added and then disabled is not seen until it is enabled;</li>
+ * <li>enabling and disabling which ends where it started is dropped, as are the moves of added or destroyed
+ * Entities;</li>
+ * <li>several moves become one move from the first parent to the last.</li>
+ * </ul>
+ * Each EntitySystem then gets the destroyed, disabled, moved, enabled and added Entities in that order, filtered by its
+ * event filter when they are delivered. BatchedSystems get one call per kind of event.
+ */
+public class EntityEventQueue {
+	/**
+	 * Everything that happened to one Entity.
+	 */
+	private static class Pending {
+		private final Entity entity;
+		private final Scene scene;
+
+		private boolean added;
+		private boolean removed;
+		private TreeNode removedParent;
+
+		private boolean toggled;
+		private boolean wasEnabled;
+		private boolean enabled;
+
+		private boolean moved;
+		private TreeNode oldParent;
+		private TreeNode newParent;
+
+		private Pending(Entity entity, Scene scene) {
+			this.entity = entity;
+			this.scene = scene;
+		}
+	}
+
+	private Map<Entity, Pending> m_pending;
+	// the Entities in the order they were added and destroyed, so batches keep parents and children in order
+	private List<Pending> m_added;
+	private List<Pending> m_removed;
+	// the Scenes which destroyed Entities since the last takeScenes()
+	private Set<Scene> m_scenes;
+
+	/**
+	 * Initializes an empty EntityEventQueue.
+	 */
+	protected EntityEventQueue() {
+		m_pending = new LinkedHashMap<Entity, Pending>();
+		m_added = new ArrayList<Pending>();
+		m_removed = new ArrayList<Pending>();
+		m_scenes = new LinkedHashSet<Scene>();
+	}
+
+	private Pending pending(Entity entity, Scene scene) {
+		Pending pending = m_pending.get(entity);
+		if (pending == null) {
+			pending = new Pending(entity, scene);
+			m_pending.put(entity, pending);
+		}
+		return pending;
+	}
+
+	/**
+	 * @param entity
+	 * @param scene
+	 */
+	protected void added(Entity entity, Scene scene) {
+		Pending pending = pending(entity, scene);
+		pending.added = true;
+		m_added.add(pending);
+	}
+
+	/**
+	 * @param entity
+	 * @param parent
+	 *            the parent the Entity had
+	 * @param scene
+	 */
+	protected void removed(Entity entity, TreeNode parent, Scene scene) {
+		Pending pending = pending(entity, scene);
+		if (pending.removed)
+			return;
+		pending.removed = true;
+		pending.removedParent = parent;
+		m_removed.add(pending);
+		m_scenes.add(scene);
+	}
+
+	/**
+	 * @param entity
+	 * @param scene
+	 */
+	protected void enabled(Entity entity, Scene scene) {
+		toggled(entity, scene, true);
+	}
+
+	/**
+	 * @param entity
+	 * @param scene
+	 */
+	protected void disabled(Entity entity, Scene scene) {
+		toggled(entity, scene, false);
+	}
+
+	private void toggled(Entity entity, Scene scene, boolean enabled) {
+		Pending pending = pending(entity, scene);
+		if (!pending.toggled) {
+			pending.toggled = true;
+			pending.wasEnabled = !enabled;
+		}
+		pending.enabled = enabled;
+	}
+
+	/**
+	 * @param entity
+	 * @param oldParent
+	 * @param newParent
+	 * @param scene
+	 */
+	protected void moved(Entity entity, TreeNode oldParent, TreeNode newParent, Scene scene) {
+		Pending pending = pending(entity, scene);
+		if (!pending.moved) {
+			pending.moved = true;
+			pending.oldParent = oldParent;
+		}
+		pending.newParent = newParent;
+	}
+
+	/**
+	 * @return whether there are no events
+	 */
+	protected boolean isEmpty() {
+		return m_pending.isEmpty();
+	}
+
+	/**
+	 * Drops every event, such as when the Scene changes and the EntitySystems scan the new Scene anyway.
+	 */
+	protected void clear() {
+		m_pending.clear();
+		m_added.clear();
+		m_removed.clear();
+	}
+
+	/**
+	 * @return the Scenes which destroyed Entities since the last call
+	 */
+	protected List<Scene> takeScenes() {
+		List<Scene> scenes = new ArrayList<Scene>(m_scenes);
+		m_scenes.clear();
+		return scenes;
+	}
+
+	/**
+	 * Gives the coalesced events to the EntitySystems and empties the queue. Events queued by the EntitySystems while
+	 * this runs are left for the next call.
+	 *
+	 * @param systems
+	 */
+	protected void deliver(List<EntitySystem> systems) {
+		List<Pending> removed = new ArrayList<Pending>();
+		for (Pending pending : m_removed) {
+			if (!pending.added)
+				removed.add(pending);
+		}
+		List<Pending> added = new ArrayList<Pending>();
+		for (Pending pending : m_added) {
+			// added and then disabled is announced by entityEnabled() once it is enabled
+			if (!pending.removed && !(pending.toggled && !pending.enabled))
+				added.add(pending);
+		}
+		List<Pending> disabled = new ArrayList<Pending>();
+		List<Pending> enabled = new ArrayList<Pending>();
+		List<Pending> moved = new ArrayList<Pending>();
+		for (Pending pending : m_pending.values()) {
+			if (pending.added || pending.removed)
+				continue;
+			if (pending.moved && pending.oldParent != pending.newParent)
+				moved.add(pending);
+			if (pending.toggled && pending.wasEnabled != pending.enabled) {
+				if (pending.enabled)
+					enabled.add(pending);
+				else
+					disabled.add(pending);
+			}
+		}
+		Set<Scene> scenes = new LinkedHashSet<Scene>();
+		for (Pending pending : m_pending.values())
+			scenes.add(pending.scene);
+		clear();
+
+		for (Scene scene : scenes) {
+			for (EntitySystem system : systems)
+				deliverRemoved(system, scene, removed);
+			for (EntitySystem system : systems)
+				deliverToggled(system, scene, disabled, false);
+			for (EntitySystem system : systems)
+				deliverMoved(system, scene, moved);
+			for (EntitySystem system : systems)
+				deliverToggled(system, scene, enabled, true);
+			for (EntitySystem system : systems)
+				deliverAdded(system, scene, added);
+		}
+	}
+
+	private static List<Entity> matching(EntitySystem system, Scene scene, List<Pending> events) {
+		EntityFilter filter = system.getEntityEventFilter();
+		List<Entity> entities = new ArrayList<Entity>();
+		for (Pending pending : events) {
+			if (pending.scene == scene && filter.matches(pending.entity))
+				entities.add(pending.entity);
+		}
+		return entities;
+	}
+
+	private static void deliverRemoved(EntitySystem system, Scene scene, List<Pending> removed) {
+		List<Entity> entities = matching(system, scene, removed);
+		if (entities.isEmpty())
+			return;
+		if (system instanceof BatchedSystem) {
+			((BatchedSystem) system).entitiesRemoved(entities, scene);
+			return;
+		}
+		EntityFilter filter = system.getEntityEventFilter();
+		for (Pending pending : removed) {
+			if (pending.scene == scene && filter.matches(pending.entity))
+				system.entityDisabled(pending.entity, pending.removedParent, scene);
+		}
+	}
+
+	private static void deliverToggled(EntitySystem system, Scene scene, List<Pending> toggled, boolean enabled) {
+		List<Entity> entities = matching(system, scene, toggled);
+		if (entities.isEmpty())
+			return;
+		if (system instanceof BatchedSystem) {
+			if (enabled)
+				((BatchedSystem) system).entitiesEnabled(entities, scene);
+			else
+				((BatchedSystem) system).entitiesDisabled(entities, scene);
+			return;
+		}
+		for (Entity entity : entities) {
+			if (enabled)
+				system.entityEnabled(entity, entity.tree().getParent(), scene);
+			else
+				system.entityDisabled(entity, entity.tree().getParent(), scene);
+		}
+	}
+
+	private static void deliverMoved(EntitySystem system, Scene scene, List<Pending> moved) {
+		EntityFilter filter = system.getEntityEventFilter();
+		for (Pending pending : moved) {
+			if (pending.scene == scene && filter.matches(pending.entity))
+				system.entityMoved(pending.entity, pending.oldParent, pending.newParent, scene);
+		}
+	}
+
+	private static void deliverAdded(EntitySystem system, Scene scene, List<Pending> added) {
+		List<Entity> entities = matching(system, scene, added);
+		if (entities.isEmpty())
+			return;
+		if (system instanceof BatchedSystem) {
+			((BatchedSystem) system).entitiesAdded(entities, scene);
+			return;
+		}
+		for (Entity entity : entities)
+			system.entityAdded(entity, entity.tree().getParent(), scene);
+	}
+}
@@ -0,0 +1,56 @@
+package engine.core;
+
+import engine.core.exceptions.EntityException;
+
+/**
+ * A reference to an Entity which knows when the Entity has been destroyed. Scenes with an EntityPool reuse destroyed
+ * Entities, so holding on to a plain Entity could silently point at a new one; an EntityHandle remembers the Entity's
+ * generation and refuses to give it out once that has changed.
+ */
+public class EntityHandle {
+	private Entity m_entity;
+	private int m_generation;
+
+	/**
+	 * Creates a handle to an Entity as it is now.
+	 * 
+	 * @param entity
+	 */
+	public EntityHandle(Entity entity) {
+		if (entity == null)
+			throw new EntityException("Cannot create a handle to a null Entity!");
+		if (entity.isDestroyed())
+			throw new EntityException("Cannot create a handle to a destroyed Entity!");
+
+		m_entity = entity;
+		m_generation = entity.getGeneration();
+	}
+
+	/**
+	 * @return whether the Entity is still the one the handle was created for
+	 */
+	public boolean isValid() {
+		return m_entity.getGeneration() == m_generation && !m_entity.isDestroyed();
+	}
+
+	/**
+	 * @return the Entity
+	 */
+	public Entity get() {
+		if (!isValid())
+			throw new EntityException("Stale EntityHandle: the Entity has been destroyed!");
+		return m_entity;
+	}
+
+	/**
+	 * @return the Entity, or null if it has been destroyed
+	 */
+	public Entity getOrNull() {
+		return isValid() ? m_entity : null;
+	}
+
+	@Override
+	public String toString() {
+		return "EntityHandle[" + m_entity.getName() + "#" + m_generation + "]";
+	}
+}
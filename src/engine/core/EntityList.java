@@ -0,0 +1,158 @@
+package engine.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An ordered collection of Entities with constant time add, remove and contains. Removing an Entity leaves a hole which
+ * is compacted lazily, so the EntityList can be walked by slot while Entities are added and removed.
+ *
+ * To walk the EntityList, call beginWalk(), visit every slot below slots() skipping the null holes, then call
+ * endWalk().
+ */
+public class EntityList {
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Entity[] m_entities;
+	// maps each Entity to its slot
+	private Map<Entity, Integer> m_slots;
+
+	// the number of slots in use, including holes
+	private int m_used;
+	// the number of holes left by removals
+	private int m_holes;
+	// compaction is postponed while walks are in progress
+	private int m_walkers;
+
+	/**
+	 * Initializes an empty EntityList.
+	 */
+	public EntityList() {
+		m_entities = new Entity[INITIAL_CAPACITY];
+		m_slots = new HashMap<Entity, Integer>();
+	}
+
+	/**
+	 * Adds an Entity to the end of the EntityList. Does nothing if it is already contained.
+	 *
+	 * @param entity
+	 * @return whether the Entity was added
+	 */
+	public boolean add(Entity entity) {
+		if (m_slots.containsKey(entity))
+			return false;
+
+		if (m_used == m_entities.length) {
+			if (m_walkers == 0 && m_holes > 0) {
+				compact();
+			}
+			if (m_used == m_entities.length) {
+				Entity[] grown = new Entity[m_entities.length * 2];
+				System.arraycopy(m_entities, 0, grown, 0, m_used);
+				m_entities = grown;
+			}
+		}
+
+		m_slots.put(entity, m_used);
+		m_entities[m_used++] = entity;
+		return true;
+	}
+
+	/**
+	 * Removes an Entity from the EntityList. Does nothing if it isn't contained.
+	 *
+	 * @param entity
+	 * @return whether the Entity was removed
+	 */
+	public boolean remove(Entity entity) {
+		Integer slot = m_slots.remove(entity);
+		if (slot == null)
+			return false;
+
+		m_entities[slot] = null;
+		m_holes++;
+
+		if (m_walkers == 0 && m_holes > (m_used >> 1))
+			compact();
+		return true;
+	}
+
+	/**
+	 * @param entity
+	 * @return whether the Entity is in the EntityList
+	 */
+	public boolean contains(Entity entity) {
+		return m_slots.containsKey(entity);
+	}
+
+	/**
+	 * Removes all the Entities.
+	 */
+	public void clear() {
+		for (int i = 0; i < m_used; i++)
+			m_entities[i] = null;
+		m_slots.clear();
+		m_used = 0;
+		m_holes = 0;
+	}
+
+	/**
+	 * @return the number of Entities in the EntityList
+	 */
+	public int size() {
+		return m_used - m_holes;
+	}
+
+	/**
+	 * @return the number of slots to visit when walking, including holes
+	 */
+	public int slots() {
+		return m_used;
+	}
+
+	/**
+	 * @param slot
+	 * @return the Entity in the slot, or null if the slot is a hole
+	 */
+	public Entity get(int slot) {
+		return m_entities[slot];
+	}
+
+	/**
+	 * Starts a walk over the slots. Slots will not move until the matching endWalk().
+	 */
+	public void beginWalk() {
+		m_walkers++;
+	}
+
+	/**
+	 * Finishes a walk over the slots.
+	 */
+	public void endWalk() {
+		m_walkers--;
+		if (m_walkers == 0 && m_holes > (m_used >> 1))
+			compact();
+	}
+
+	/**
+	 * Moves the Entities over the holes, keeping them in order.
+	 */
+	private void compact() {
+		int next = 0;
+		for (int i = 0; i < m_used; i++) {
+			Entity entity = m_entities[i];
+			if (entity == null)
+				continue;
+			if (next != i) {
+				m_entities[next] = entity;
+				m_slots.put(entity, next);
+			}
+			next++;
+		}
+		for (int i = next; i < m_used; i++)
+			m_entities[i] = null;
+
+		m_used = next;
+		m_holes = 0;
+	}
+}
@@ -0,0 +1,116 @@
+package engine.core;
+
+import engine.core.exceptions.SceneException;
+
+/**
+ * A path to an Entity, like "player.camera", compiled with scene.compilePath(path). The path is split once, and the
+ * Entity it resolves to is remembered until an Entity along the path is renamed, moved or destroyed, so looking it up
+ * again only checks that nothing changed.
+ *
+ * Resolving writes the remembered Entity, so an EntityPath should only be shared between threads after it has
+ * resolved.
+ */
+public class EntityPath {
+	private Scene m_scene;
+	private String m_path;
+	private String[] m_names;
+
+	// the Entity the path last resolved to, and its generation and path version at the time
+	private Entity m_entity;
+	private int m_generation;
+	private int m_version;
+
+	/**
+	 * Compiles a path in a Scene.
+	 *
+	 * @param scene
+	 * @param path
+	 *            the names of the Entities from the top level down, separated by "."
+	 */
+	protected EntityPath(Scene scene, String path) {
+		if (path == null)
+			throw new SceneException("Cannot find Entity with null path!");
+		m_scene = scene;
+		m_path = path;
+		m_names = split(path);
+	}
+
+	private static String[] split(String path) {
+		int count = 1;
+		for (int i = 0; i < path.length(); i++) {
+			if (path.charAt(i) == '.')
+				count++;
+		}
+		String[] names = new String[count];
+		int start = 0;
+		for (int i = 0; i < count - 1; i++) {
+			int end = path.indexOf('.', start);
+			names[i] = path.substring(start, end);
+			start = end + 1;
+		}
+		names[count - 1] = path.substring(start);
+		return names;
+	}
+
+	/**
+	 * @return whether the remembered Entity is still the one at the path
+	 */
+	private boolean isCurrent() {
+		Entity entity = m_entity;
+		return entity != null && entity.getGeneration() == m_generation && entity.getPathVersion() == m_version;
+	}
+
+	/**
+	 * @return the Entity at the path
+	 */
+	public Entity get() {
+		if (isCurrent())
+			return m_entity;
+
+		Entity found = m_scene.getRootEntity(m_names[0]);
+		for (int i = 1; i < m_names.length; i++)
+			found = found.tree().getChild(m_names[i]);
+		remember(found);
+		return found;
+	}
+
+	/**
+	 * @return the Entity at the path, or null if there is none
+	 */
+	public Entity getOrNull() {
+		if (isCurrent())
+			return m_entity;
+
+		Entity found = m_scene.findRootEntity(m_names[0]);
+		for (int i = 1; i < m_names.length && found != null; i++)
+			found = found.tree().hasChild(m_names[i]) ? found.tree().getChild(m_names[i]) : null;
+		if (found != null)
+			remember(found);
+		return found;
+	}
+
+	private void remember(Entity entity) {
+		m_generation = entity.getGeneration();
+		m_version = entity.getPathVersion();
+		m_entity = entity;
+	}
+
+	/**
+	 * @return the Scene the path is in
+	 */
+	public Scene getScene() {
+		return m_scene;
+	}
+
+	/**
+	 * @return the path
+	 */
+	public String getPath() {
+		return m_path;
+	}
+
+	@Override
+	public String toString() {
+		return "EntityPath[" + m_path + "]";
+	}
+}
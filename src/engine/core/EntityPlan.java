@@ -0,0 +1,260 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import commons.Transform2f;
+
+import engine.core.CTransform.TransformMode;
+import engine.core.exceptions.ComponentException;
+import engine.core.exceptions.EntityException;
+import engine.core.exceptions.XScriptException;
+import engine.core.script.XScript;
+
+/**
+ * An EntityBuilder tree compiled into flat arrays, so it can be instantiated many times with scene.instantiate(plan,
+ * name, parent) without walking the builders again. The builders are checked once when the plan is made, the
+ * Component ids are worked out up front, the TagLists are shared between instances and the Scripts are precompiled so
+ * their duplicates share code.
+ *
+ * The plan is a snapshot: changing the EntityBuilders afterwards doesn't change the plan. The ComponentBuilders and
+ * script data values are still shared, so they should not be changed either.
+ */
+public class EntityPlan {
+	// the Entities in the order they are created, parents before their children; the root is 0
+	private String[] m_names;
+	private int[] m_parents;
+
+	private ComponentBuilder<?>[][] m_builders;
+	private Signature[] m_signatures;
+	private TagList[] m_tags;
+
+	private float[] m_transforms;
+	private TransformMode[] m_modes;
+
+	private String[][] m_dataKeys;
+	private Object[][] m_dataValues;
+
+	private XScript[][] m_scripts;
+	// the order Scripts are added in, children before their parents
+	private int[] m_scriptOrder;
+
+	private static final int TRANSFORM_STRIDE = 5;
+
+	/**
+	 * Compiles an EntityBuilder and its child builders.
+	 *
+	 * @param builder
+	 */
+	public EntityPlan(EntityBuilder builder) {
+		if (builder == null)
+			throw new EntityException("Cannot make an EntityPlan from a null EntityBuilder!");
+
+		List<EntityBuilder> builders = new ArrayList<EntityBuilder>();
+		List<String> names = new ArrayList<String>();
+		List<Integer> parents = new ArrayList<Integer>();
+		List<Integer> scriptOrder = new ArrayList<Integer>();
+		flatten(builder, null, -1, builders, names, parents, scriptOrder);
+
+		int size = builders.size();
+		m_names = names.toArray(new String[size]);
+		m_parents = new int[size];
+		m_scriptOrder = new int[size];
+		m_builders = new ComponentBuilder<?>[size][];
+		m_signatures = new Signature[size];
+		m_tags = new TagList[size];
+		m_transforms = new float[size * TRANSFORM_STRIDE];
+		m_modes = new TransformMode[size];
+		m_dataKeys = new String[size][];
+		m_dataValues = new Object[size][];
+		m_scripts = new XScript[size][];
+
+		for (int i = 0; i < size; i++) {
+			m_parents[i] = parents.get(i);
+			m_scriptOrder[i] = scriptOrder.get(i);
+			compile(i, builders.get(i));
+		}
+	}
+
+	/**
+	 * Adds a builder and its children in pre-order, and their Script order in post-order.
+	 */
+	private static void flatten(EntityBuilder builder, String name, int parent, List<EntityBuilder> builders,
+			List<String> names, List<Integer> parents, List<Integer> scriptOrder) {
+		int index = builders.size();
+		builders.add(builder);
+		names.add(name);
+		parents.add(parent);
+
+		Map<String, EntityBuilder> children = builder.getEntityBuilders();
+		for (String childName : children.keySet()) {
+			if (childName == null)
+				throw new EntityException("Cannot compile a child builder with a null name!");
+			flatten(children.get(childName), childName, index, builders, names, parents, scriptOrder);
+		}
+		scriptOrder.add(index);
+	}
+
+	private void compile(int index, EntityBuilder builder) {
+		List<ComponentBuilder<? extends Component>> componentBuilders = builder.getComponentBuilders();
+		ComponentBuilder<?>[] compiled = new ComponentBuilder<?>[componentBuilders.size()];
+		Set<String> componentNames = new HashSet<String>();
+		componentNames.add(CTags.NAME);
+		componentNames.add(CTransform.NAME);
+		componentNames.add(CScriptData.NAME);
+		Signature signature = new Signature();
+		for (String name : componentNames)
+			signature.set(SignatureRegistry.componentId(name));
+		for (int i = 0; i < compiled.length; i++) {
+			ComponentBuilder<?> componentBuilder = componentBuilders.get(i);
+			if (componentBuilder == null || componentBuilder.getName() == null)
+				throw new ComponentException("Cannot compile a null builder or a builder with a null name!");
+			if (!componentNames.add(componentBuilder.getName()))
+				throw new ComponentException("Name duplicate: " + componentBuilder.getName());
+			signature.set(SignatureRegistry.componentId(componentBuilder.getName()));
+			compiled[i] = componentBuilder;
+		}
+		m_builders[index] = compiled;
+		m_signatures[index] = signature;
+		m_tags[index] = builder.getTagList();
+
+		Transform2f transform = builder.getTransform();
+		int t = index * TRANSFORM_STRIDE;
+		m_transforms[t] = transform.getTranslationX();
+		m_transforms[t + 1] = transform.getTranslationY();
+		m_transforms[t + 2] = transform.getRotation();
+		m_transforms[t + 3] = transform.getScaleX();
+		m_transforms[t + 4] = transform.getScaleY();
+		m_modes[index] = builder.getTransformMode();
+
+		Map<String, Object> scriptData = builder.getScriptData();
+		String[] keys = new String[scriptData.size()];
+		Object[] values = new Object[keys.length];
+		int d = 0;
+		for (Map.Entry<String, Object> entry : scriptData.entrySet()) {
+			if (entry.getKey() == null || entry.getValue() == null)
+				throw new ComponentException("Cannot compile null script data for identifier: " + entry.getKey());
+			keys[d] = entry.getKey();
+			values[d] = entry.getValue();
+			d++;
+		}
+		m_dataKeys[index] = keys;
+		m_dataValues[index] = values;
+
+		List<XScript> scripts = builder.getScripts();
+		XScript[] prototypes = new XScript[scripts.size()];
+		for (int i = 0; i < prototypes.length; i++) {
+			XScript script = scripts.get(i);
+			if (script == null)
+				throw new XScriptException("Cannot compile a null XScript!");
+			prototypes[i] = script.duplicate();
+			prototypes[i].precompile();
+		}
+		m_scripts[index] = prototypes;
+	}
+
+	/**
+	 * @return the number of Entities each instance has
+	 */
+	public int getSize() {
+		return m_names.length;
+	}
+
+	/**
+	 * @param index
+	 * @return the name of the Entity, or null for the root, which is named when it is instantiated
+	 */
+	protected String getName(int index) {
+		return m_names[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the index of the parent Entity, which is always lower, or -1 for the root
+	 */
+	protected int getParent(int index) {
+		return m_parents[index];
+	}
+
+	/**
+	 * @param index
+	 * @return new Components for the Entity
+	 */
+	protected List<Component> buildComponents(int index) {
+		ComponentBuilder<?>[] builders = m_builders[index];
+		List<Component> components = new ArrayList<Component>(builders.length);
+		for (ComponentBuilder<?> builder : builders)
+			components.add(builder.build());
+		return components;
+	}
+
+	/**
+	 * @param index
+	 * @return the ids of the Entity's Component names - do not modify this
+	 */
+	protected Signature getSignature(int index) {
+		return m_signatures[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the Entity's TagList, which is shared as TagLists are immutable
+	 */
+	protected TagList getTags(int index) {
+		return m_tags[index];
+	}
+
+	/**
+	 * @param index
+	 * @return a new Transform2f for the Entity
+	 */
+	protected Transform2f buildTransform(int index) {
+		int t = index * TRANSFORM_STRIDE;
+		return new Transform2f(m_transforms[t], m_transforms[t + 1], m_transforms[t + 2], m_transforms[t + 3],
+				m_transforms[t + 4]);
+	}
+
+	/**
+	 * @param index
+	 * @return how the Entity transforms relative to its parent
+	 */
+	protected TransformMode getTransformMode(int index) {
+		return m_modes[index];
+	}
+
+	/**
+	 * Sets the Entity's script data.
+	 *
+	 * @param index
+	 * @param entity
+	 */
+	protected void applyScriptData(int index, Entity entity) {
+		String[] keys = m_dataKeys[index];
+		Object[] values = m_dataValues[index];
+		for (int i = 0; i < keys.length; i++)
+			entity.scriptData().setData(keys[i], values[i]);
+	}
+
+	/**
+	 * @param index
+	 * @return new duplicates of the Entity's Scripts
+	 */
+	protected List<XScript> buildScripts(int index) {
+		XScript[] prototypes = m_scripts[index];
+		List<XScript> scripts = new ArrayList<XScript>(prototypes.length);
+		for (XScript prototype : prototypes)
+			scripts.add(prototype.duplicate());
+		return scripts;
+	}
+
+	/**
+	 * @param i
+	 * @return the index of the i-th Entity to get its Scripts, children before their parents
+	 */
+	protected int getScriptOrder(int i) {
+		return m_scriptOrder[i];
+	}
+}
@@ -0,0 +1,71 @@
+package engine.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps destroyed Entities so a Scene can reuse them, along with their TreeManager, ComponentManager, ScriptManager,
+ * CTags, CTransform, CScriptData and listener list, instead of allocating new ones. Only the Entity objects are
+ * pooled; the other Components come from the EntityBuilder as usual.
+ *
+ * Pooling is opt-in per Scene with Scene.setEntityPool(). Code which keeps references to Entities in a pooled Scene
+ * should use EntityHandles, because a destroyed Entity can come back as a different one. A pool may be shared by the
+ * Scenes of one Game, and an Entity destroyed in one Scene can come back in another, but it is not thread-safe, so it
+ * should not be shared by Games running on different threads.
+ */
+public class EntityPool {
+	private Deque<Entity> m_free;
+	private int m_capacity;
+
+	/**
+	 * Initializes an EntityPool.
+	 * 
+	 * @param capacity
+	 *            the most destroyed Entities to keep
+	 */
+	public EntityPool(int capacity) {
+		m_free = new ArrayDeque<Entity>();
+		m_capacity = capacity;
+	}
+
+	/**
+	 * @return a destroyed Entity to reuse, or null if the pool is empty
+	 */
+	protected Entity obtain() {
+		return m_free.pollFirst();
+	}
+
+	/**
+	 * Keeps a destroyed Entity if there is room.
+	 * 
+	 * @param entity
+	 * @return whether the Entity was kept
+	 */
+	protected boolean release(Entity entity) {
+		if (m_free.size() >= m_capacity)
+			return false;
+		m_free.addFirst(entity);
+		return true;
+	}
+
+	/**
+	 * @return the number of Entities waiting to be reused
+	 */
+	public int size() {
+		return m_free.size();
+	}
+
+	/**
+	 * @return the most destroyed Entities kept
+	 */
+	public int getCapacity() {
+		return m_capacity;
+	}
+
+	/**
+	 * Drops all the kept Entities.
+	 */
+	public void clear() {
+		m_free.clear();
+	}
+}
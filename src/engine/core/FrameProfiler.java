@@ -0,0 +1,183 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import engine.core.exceptions.GameException;
+
+/**
+ * Records how long the phases of the last frames took. Give one to game.setProfiler() and the Game times each
+ * EntitySystem's update(), all of its updateEntity() calls together and its postUpdate(), as well as the Scripts and
+ * the whole frame. The phases are named like "BodySystem.update", "BodySystem.updateEntity", "scripts" and "frame".
+ *
+ * Each phase keeps the timings of its last frames in a ring buffer which is written without locks, so it can be read
+ * from another thread while the Game runs. Without a FrameProfiler the Game only pays a null check per phase.
+ */
+public class FrameProfiler {
+	/**
+	 * The timings of one phase over the last frames.
+	 */
+	public static class Timings {
+		private final AtomicLongArray m_samples;
+		private final AtomicLong m_count;
+
+		private Timings(int frames) {
+			m_samples = new AtomicLongArray(frames);
+			m_count = new AtomicLong();
+		}
+
+		/**
+		 * Adds a timing, replacing the oldest once the buffer is full.
+		 *
+		 * @param nanos
+		 */
+		public void record(long nanos) {
+			long index = m_count.getAndIncrement();
+			m_samples.set((int) (index % m_samples.length()), nanos);
+		}
+
+		/**
+		 * @return the number of timings ever recorded
+		 */
+		public long getCount() {
+			return m_count.get();
+		}
+
+		/**
+		 * @return the timings in the buffer, sorted
+		 */
+		private long[] sorted() {
+			int size = (int) Math.min(m_count.get(), m_samples.length());
+			long[] samples = new long[size];
+			for (int i = 0; i < size; i++)
+				samples[i] = m_samples.get(i);
+			Arrays.sort(samples);
+			return samples;
+		}
+
+		/**
+		 * @param percentile
+		 *            from 0 to 100
+		 * @return the timing in nanoseconds at the percentile of the last frames, or 0 if there are none
+		 */
+		public long getPercentile(double percentile) {
+			long[] samples = sorted();
+			if (samples.length == 0)
+				return 0;
+			int index = (int) Math.ceil(percentile / 100 * samples.length) - 1;
+			return samples[Math.max(0, Math.min(samples.length - 1, index))];
+		}
+
+		/**
+		 * @return the median timing in nanoseconds of the last frames
+		 */
+		public long getMedian() {
+			return getPercentile(50);
+		}
+
+		/**
+		 * @return the longest timing in nanoseconds of the last frames
+		 */
+		public long getMax() {
+			long[] samples = sorted();
+			return (samples.length == 0) ? 0 : samples[samples.length - 1];
+		}
+	}
+
+	public static final String FRAME = "frame";
+	public static final String SCRIPTS = "scripts";
+
+	private int m_frames;
+	private ConcurrentHashMap<String, Timings> m_timings;
+	// the phase names in the order they were first recorded
+	private List<String> m_names;
+
+	/**
+	 * Initializes a FrameProfiler which keeps the timings of a number of frames.
+	 *
+	 * @param frames
+	 */
+	public FrameProfiler(int frames) {
+		if (frames < 1)
+			throw new GameException("A FrameProfiler must keep at least one frame!");
+		m_frames = frames;
+		m_timings = new ConcurrentHashMap<String, Timings>();
+		m_names = new CopyOnWriteArrayList<String>();
+	}
+
+	/**
+	 * @return the number of frames kept
+	 */
+	public int getFrames() {
+		return m_frames;
+	}
+
+	/**
+	 * Gets the Timings of a phase, creating them if this is the first time the phase is used. The Game looks its
+	 * phases up once rather than every frame.
+	 *
+	 * @param phase
+	 * @return the Timings
+	 */
+	public Timings getTimings(String phase) {
+		Timings timings = m_timings.get(phase);
+		if (timings == null) {
+			synchronized (this) {
+				timings = m_timings.get(phase);
+				if (timings == null) {
+					timings = new Timings(m_frames);
+					m_timings.put(phase, timings);
+					m_names.add(phase);
+				}
+			}
+		}
+		return timings;
+	}
+
+	/**
+	 * @return the names of the phases, in the order they were first used
+	 */
+	public List<String> getPhases() {
+		return Collections.unmodifiableList(new ArrayList<String>(m_names));
+	}
+
+	/**
+	 * @param phase
+	 * @param percentile
+	 *            from 0 to 100
+	 * @return the timing in nanoseconds at the percentile of the last frames, or 0 if the phase has none
+	 */
+	public long getPercentile(String phase, double percentile) {
+		Timings timings = m_timings.get(phase);
+		return (timings == null) ? 0 : timings.getPercentile(percentile);
+	}
+
+	/**
+	 * @param phase
+	 * @return the longest timing in nanoseconds of the last frames, or 0 if the phase has none
+	 */
+	public long getMax(String phase) {
+		Timings timings = m_timings.get(phase);
+		return (timings == null) ? 0 : timings.getMax();
+	}
+
+	/**
+	 * @return a table of the p50, p99 and max of each phase in milliseconds
+	 */
+	public String report() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%-40s %10s %10s %10s%n", "phase", "p50 ms", "p99 ms", "max ms"));
+		for (String phase : m_names) {
+			Timings timings = m_timings.get(phase);
+			builder.append(String.format("%-40s %10.3f %10.3f %10.3f%n", phase, timings.getPercentile(50) / 1e6,
+					timings.getPercentile(99) / 1e6, timings.getMax() / 1e6));
+		}
+		return builder.toString();
+	}
+}
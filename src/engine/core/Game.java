@@ -1,8 +1,15 @@
 package engine.core;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
+import engine.core.asset.AssetManager;
 import engine.core.exceptions.GameException;
 import engine.core.script.XScript;
 
@@ -10,14 +17,48 @@ import engine.core.script.XScript;
  * Contains the Scenes and the Systems.
  */
 public class Game {
+	// the fewest member Entities given to one thread by a parallel updateEntity()
+	private static final int PARALLEL_CHUNK = 256;
+
+	// the phases timed for each EntitySystem
+	private static final int UPDATE = 0;
+	private static final int UPDATE_ENTITY = 1;
+	private static final int POST_UPDATE = 2;
+
 	private SceneManager m_scenes;
 	private List<EntitySystem> m_systems;
+	// the enabled Entities of the current Scene which match each EntitySystem's update filter
+	private Map<EntitySystem, EntityList> m_members;
+	// runs the update phases of non-conflicting EntitySystems at the same time
+	private SystemScheduler m_scheduler;
+	// the Entity events of the frame being updated, which are given to the EntitySystems at the end of it
+	private EntityEventQueue m_events;
+	private boolean m_queueing;
+	// whether the scheduled phases are running, during which the member lists are being walked
+	private volatile boolean m_walking;
+	// the Entities whose tags changed while the member lists were being walked; guarded by itself
+	private Set<Entity> m_retagged;
+
+	// times the phases of each frame if set
+	private FrameProfiler m_profiler;
+	// the Timings of each EntitySystem's phases, looked up when the profiler or the systems change
+	private Map<EntitySystem, FrameProfiler.Timings[]> m_timings;
+	private FrameProfiler.Timings m_frameTimings;
+	private FrameProfiler.Timings m_scriptTimings;
+
+	// the assets of this Game, or null to use the global AssetManager
+	private AssetManager m_assets;
 
 	/**
 	 * Initializes a Game with no Scenes.
 	 */
 	public Game() {
 		m_systems = new ArrayList<EntitySystem>();
+		m_members = new HashMap<EntitySystem, EntityList>();
+		m_scheduler = new SystemScheduler(ForkJoinPool.commonPool());
+		m_events = new EntityEventQueue();
+		m_retagged = new LinkedHashSet<Entity>();
+		m_timings = new HashMap<EntitySystem, FrameProfiler.Timings[]>();
 		m_scenes = new SceneManager(this);
 	}
 
@@ -28,6 +69,11 @@ public class Game {
 	 * @param newScene
 	 */
 	protected void sceneChanged(Scene oldScene, Scene newScene) {
+		// the systems scan the new Scene, which covers anything queued
+		m_events.clear();
+		for (EntitySystem system : m_systems)
+			m_members.put(system, collectMembers(system, newScene));
+
 		for (EntitySystem system : m_systems) {
 			system.sceneChanged(oldScene, newScene);
 		}
@@ -41,12 +87,52 @@ public class Game {
 	 * @param scene
 	 */
 	protected void entityAdded(Entity entity, TreeNode parent, Scene scene) {
+		refreshMembership(entity, scene);
+		if (m_queueing) {
+			m_events.added(entity, scene);
+			return;
+		}
 		for (EntitySystem system : m_systems) {
 			if (system.getEntityEventFilter().matches(entity))
 				system.entityAdded(entity, parent, scene);
 		}
 	}
 
+	/**
+	 * Called by the Scene when many Entities are added at once. BatchedSystems get all the matching Entities in one
+	 * call; other systems get one entityAdded() per Entity.
+	 * 
+	 * @param entities
+	 *            parents before their children
+	 * @param scene
+	 */
+	protected void entitiesAdded(List<Entity> entities, Scene scene) {
+		for (Entity entity : entities)
+			refreshMembership(entity, scene);
+		if (m_queueing) {
+			for (Entity entity : entities)
+				m_events.added(entity, scene);
+			return;
+		}
+		List<Entity> matching = new ArrayList<Entity>();
+		for (EntitySystem system : m_systems) {
+			EntityFilter filter = system.getEntityEventFilter();
+			for (Entity entity : entities) {
+				// an earlier system may have destroyed it
+				if (!entity.isDestroyed() && filter.matches(entity)) {
+					if (system instanceof BatchedSystem)
+						matching.add(entity);
+					else
+						system.entityAdded(entity, entity.tree().getParent(), scene);
+				}
+			}
+			if (!matching.isEmpty()) {
+				((BatchedSystem) system).entitiesAdded(matching, scene);
+				matching = new ArrayList<Entity>();
+			}
+		}
+	}
+
 	/**
 	 * Called by the Scene.
 	 * 
@@ -70,6 +156,11 @@ public class Game {
 	 * @param scene
 	 */
 	protected void entityMoved(Entity entity, TreeNode oldParent, TreeNode newParent, Scene scene) {
+		refreshMembership(entity, scene);
+		if (m_queueing) {
+			m_events.moved(entity, oldParent, newParent, scene);
+			return;
+		}
 		for (EntitySystem system : m_systems) {
 			if (system.getEntityEventFilter().matches(entity))
 				system.entityMoved(entity, oldParent, newParent, scene);
@@ -84,6 +175,11 @@ public class Game {
 	 * @param scene
 	 */
 	protected void entityEnabled(Entity entity, TreeNode parent, Scene scene) {
+		refreshMembership(entity, scene);
+		if (m_queueing) {
+			m_events.enabled(entity, scene);
+			return;
+		}
 		for (EntitySystem system : m_systems) {
 			if (system.getEntityEventFilter().matches(entity))
 				system.entityEnabled(entity, parent, scene);
@@ -98,12 +194,136 @@ public class Game {
 	 * @param scene
 	 */
 	protected void entityDisabled(Entity entity, TreeNode parent, Scene scene) {
+		for (EntityList members : m_members.values())
+			members.remove(entity);
+		if (m_queueing) {
+			// a destroyed Entity is disabled too
+			if (entity.isDestroyed())
+				m_events.removed(entity, parent, scene);
+			else
+				m_events.disabled(entity, scene);
+			return;
+		}
 		for (EntitySystem system : m_systems) {
 			if (system.getEntityEventFilter().matches(entity))
 				system.entityDisabled(entity, parent, scene);
 		}
 	}
 
+	/**
+	 * Called by the Scene when many Entities are destroyed at once. BatchedSystems get all the matching Entities in one
+	 * call; other systems get one entityDisabled() per Entity.
+	 * 
+	 * @param entities
+	 *            children before their parents
+	 * @param parents
+	 *            the parent each Entity had
+	 * @param scene
+	 */
+	protected void entitiesRemoved(List<Entity> entities, List<TreeNode> parents, Scene scene) {
+		for (EntityList members : m_members.values()) {
+			for (Entity entity : entities)
+				members.remove(entity);
+		}
+		if (m_queueing) {
+			for (int i = 0; i < entities.size(); i++)
+				m_events.removed(entities.get(i), parents.get(i), scene);
+			return;
+		}
+		List<Entity> matching = new ArrayList<Entity>();
+		for (EntitySystem system : m_systems) {
+			EntityFilter filter = system.getEntityEventFilter();
+			for (int i = 0; i < entities.size(); i++) {
+				Entity entity = entities.get(i);
+				if (filter.matches(entity)) {
+					if (system instanceof BatchedSystem)
+						matching.add(entity);
+					else
+						system.entityDisabled(entity, parents.get(i), scene);
+				}
+			}
+			if (!matching.isEmpty()) {
+				((BatchedSystem) system).entitiesRemoved(matching, scene);
+				matching = new ArrayList<Entity>();
+			}
+		}
+	}
+
+	/**
+	 * Called by an Entity when its tags change.
+	 * 
+	 * @param entity
+	 * @param scene
+	 */
+	protected void entityTagsChanged(Entity entity, Scene scene) {
+		// other systems may be walking the member lists on other threads, so the change waits for the sync point
+		if (m_walking) {
+			synchronized (m_retagged) {
+				m_retagged.add(entity);
+			}
+			return;
+		}
+		refreshMembership(entity, scene);
+	}
+
+	/**
+	 * Re-filters the Entities whose tags changed during the scheduled phases.
+	 * 
+	 * @param scene
+	 */
+	private void refreshRetagged(Scene scene) {
+		List<Entity> retagged;
+		synchronized (m_retagged) {
+			retagged = new ArrayList<Entity>(m_retagged);
+			m_retagged.clear();
+		}
+		for (Entity entity : retagged)
+			refreshMembership(entity, scene);
+	}
+
+	/**
+	 * Adds the Entity to or removes it from the member list of each EntitySystem, depending on whether it is enabled
+	 * and matches the update filter. Only the current Scene has member lists.
+	 * 
+	 * @param entity
+	 * @param scene
+	 */
+	private void refreshMembership(Entity entity, Scene scene) {
+		if (scene != m_scenes.getCurrentScene())
+			return;
+
+		boolean alive = entity.isEnabled() && !entity.isDestroyed() && scene.contains(entity);
+		for (EntitySystem system : m_systems) {
+			EntityList members = m_members.get(system);
+			if (alive && system.getUpdateFilter().matches(entity))
+				members.add(entity);
+			else
+				members.remove(entity);
+		}
+	}
+
+	/**
+	 * Scans a Scene for the Entities an EntitySystem should update.
+	 * 
+	 * @param system
+	 * @param scene
+	 * @return
+	 */
+	private EntityList collectMembers(EntitySystem system, Scene scene) {
+		EntityList members = new EntityList();
+		if (scene == null)
+			return members;
+
+		EntityList all = scene.directGetAllEntities();
+		int slots = all.slots();
+		for (int i = 0; i < slots; i++) {
+			Entity e = all.get(i);
+			if (e != null && e.isEnabled() && system.getUpdateFilter().matches(e))
+				members.add(e);
+		}
+		return members;
+	}
+
 	/**
 	 * Called by an Entity.
 	 * 
@@ -129,25 +349,258 @@ public class Game {
 	 * 
 	 * @param time
 	 */
-	public void update(float time) {
-		Scene current = m_scenes.getCurrentScene();
+	public void update(final float time) {
+		final Scene current = m_scenes.getCurrentScene();
+		long frameStart = startTiming();
 
-		for (EntitySystem system : m_systems)
-			system.update(current, time);
-
-		List<Entity> entities = current.getAllEntities();
-		for (Entity e : entities) {
-			if (e.isEnabled()) {
-				for (EntitySystem system : m_systems) {
-					if (system.getUpdateFilter().matches(e))
-						system.updateEntity(e, current, time);
+		// structural changes are recorded and applied at the two sync points below, and the EntitySystems are told
+		// about them once the frame is done
+		m_queueing = true;
+		current.beginDeferring();
+		try {
+			m_walking = true;
+			try {
+				m_scheduler.run(new SystemScheduler.Phase() {
+					@Override
+					public void run(EntitySystem system) {
+						long start = startTiming();
+						system.update(current, time);
+						endTiming(system, UPDATE, start);
+					}
+				});
+				m_scheduler.run(new SystemScheduler.Phase() {
+					@Override
+					public void run(EntitySystem system) {
+						long start = startTiming();
+						updateMembers(system, current, time);
+						endTiming(system, UPDATE_ENTITY, start);
+					}
+				});
+			} finally {
+				m_walking = false;
+				refreshRetagged(current);
+			}
+			current.flushDeferred();
+
+			current.updateWorldTransforms();
+			for (EntitySystem system : m_systems) {
+				long start = startTiming();
+				system.postUpdate(current);
+				endTiming(system, POST_UPDATE, start);
+			}
+
+			long start = startTiming();
+			m_scenes.getCurrentScene().updateScripts(time);
+			if (m_profiler != null)
+				m_scriptTimings.record(System.nanoTime() - start);
+		} finally {
+			try {
+				current.endDeferring();
+			} finally {
+				deliverEvents();
+			}
+		}
+		if (m_profiler != null)
+			m_frameTimings.record(System.nanoTime() - frameStart);
+	}
+
+	/**
+	 * @return the time to measure a phase from, or 0 if there is no FrameProfiler
+	 */
+	private long startTiming() {
+		return (m_profiler == null) ? 0 : System.nanoTime();
+	}
+
+	private void endTiming(EntitySystem system, int phase, long start) {
+		if (m_profiler != null)
+			m_timings.get(system)[phase].record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Sets the FrameProfiler which times the phases of each frame. Should not be called during update().
+	 * 
+	 * @param profiler
+	 *            the profiler, or null to stop profiling
+	 */
+	public void setProfiler(FrameProfiler profiler) {
+		m_profiler = profiler;
+		lookUpTimings();
+	}
+
+	/**
+	 * @return the FrameProfiler, or null if profiling is off
+	 */
+	public FrameProfiler getProfiler() {
+		return m_profiler;
+	}
+
+	/**
+	 * Finds the Timings of every phase in the FrameProfiler. Systems of the same class are told apart by a number.
+	 */
+	private void lookUpTimings() {
+		m_timings.clear();
+		if (m_profiler == null)
+			return;
+		m_frameTimings = m_profiler.getTimings(FrameProfiler.FRAME);
+		m_scriptTimings = m_profiler.getTimings(FrameProfiler.SCRIPTS);
+
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (EntitySystem system : m_systems) {
+			String name = system.getClass().getSimpleName();
+			Integer count = counts.get(name);
+			counts.put(name, (count == null) ? 1 : count + 1);
+			if (count != null)
+				name += "#" + (count + 1);
+
+			FrameProfiler.Timings[] timings = new FrameProfiler.Timings[3];
+			timings[UPDATE] = m_profiler.getTimings(name + ".update");
+			timings[UPDATE_ENTITY] = m_profiler.getTimings(name + ".updateEntity");
+			timings[POST_UPDATE] = m_profiler.getTimings(name + ".postUpdate");
+			m_timings.put(system, timings);
+		}
+	}
+
+	/**
+	 * Gives the queued Entity events to the EntitySystems, including any queued while doing so, then stops queueing.
+	 */
+	private void deliverEvents() {
+		try {
+			while (!m_events.isEmpty())
+				m_events.deliver(m_systems);
+		} finally {
+			m_queueing = false;
+			m_events.clear();
+			for (Scene scene : m_events.takeScenes())
+				scene.releaseRetired();
+		}
+	}
+
+	/**
+	 * @return whether Entity events are being queued until the end of the frame
+	 */
+	protected boolean isQueueingEvents() {
+		return m_queueing;
+	}
+
+	/**
+	 * Calls updateEntity() on each member of an EntitySystem. The members of a parallel ScheduledSystem are split into
+	 * chunks which are updated on the thread pool, and all of them are finished before this returns.
+	 * 
+	 * @param system
+	 * @param scene
+	 * @param time
+	 */
+	private void updateMembers(EntitySystem system, Scene scene, float time) {
+		EntityList members = m_members.get(system);
+		members.beginWalk();
+		try {
+			// Entities added during the walk are first updated next frame
+			int slots = members.slots();
+			ForkJoinPool pool = m_scheduler.getPool();
+			if (pool != null && slots > PARALLEL_CHUNK && isEntityUpdateParallel(system)) {
+				updateMembersParallel((ScheduledSystem) system, members, slots, scene, time, pool);
+			} else {
+				updateMembers(system, members, 0, slots, scene, time);
+			}
+		} finally {
+			members.endWalk();
+		}
+	}
+
+	private void updateMembersParallel(final ScheduledSystem system, final EntityList members, int slots,
+			final Scene scene, final float time, ForkJoinPool pool) {
+		int chunk = Math.max(PARALLEL_CHUNK, slots / (pool.getParallelism() * 4));
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		// the calling thread takes the first chunk itself
+		for (int start = chunk; start < slots; start += chunk) {
+			final int from = start;
+			final int to = Math.min(start + chunk, slots);
+			tasks.add(pool.submit(new Runnable() {
+				@Override
+				public void run() {
+					updateChunk(system, members, from, to, scene, time);
 				}
+			}));
+		}
+
+		RuntimeException failure = null;
+		try {
+			updateChunk(system, members, 0, Math.min(chunk, slots), scene, time);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException e) {
+				if (failure == null)
+					failure = e;
 			}
 		}
-		for (EntitySystem system : m_systems)
-			system.postUpdate(current);
+		if (failure != null)
+			throw failure;
+	}
+
+	private static void updateChunk(ScheduledSystem system, EntityList members, int from, int to, Scene scene, float time) {
+		if (!ParallelAccess.isChecking()) {
+			updateMembers(system, members, from, to, scene, time);
+			return;
+		}
 
-		m_scenes.getCurrentScene().updateScripts(time);
+		ParallelAccess.begin(system);
+		try {
+			for (int i = from; i < to; i++) {
+				Entity e = members.get(i);
+				if (e != null) {
+					ParallelAccess.setEntity(e);
+					system.updateEntity(e, scene, time);
+				}
+			}
+		} finally {
+			ParallelAccess.end();
+		}
+	}
+
+	private static void updateMembers(EntitySystem system, EntityList members, int from, int to, Scene scene, float time) {
+		for (int i = from; i < to; i++) {
+			Entity e = members.get(i);
+			if (e != null)
+				system.updateEntity(e, scene, time);
+		}
+	}
+
+	private static boolean isEntityUpdateParallel(EntitySystem system) {
+		if (!(system instanceof ScheduledSystem))
+			return false;
+		ScheduledSystem scheduled = (ScheduledSystem) system;
+		return scheduled.isEntityUpdateParallel() && !scheduled.isMainThreadOnly();
+	}
+
+	/**
+	 * Sets the pool which non-conflicting ScheduledSystems are run on. Defaults to the common ForkJoinPool.
+	 * 
+	 * @param pool
+	 *            the pool, or null to run every EntitySystem on the thread calling update()
+	 */
+	public void setThreadPool(ForkJoinPool pool) {
+		m_scheduler.setPool(pool);
+	}
+
+	/**
+	 * Sets the AssetManager of this Game, so Games running in the same JVM don't have to share the global one.
+	 * 
+	 * @param assets
+	 *            the AssetManager, or null to use AssetManager.instance()
+	 */
+	public void setAssets(AssetManager assets) {
+		m_assets = assets;
+	}
+
+	/**
+	 * @return the AssetManager of this Game, or AssetManager.instance() if none was set
+	 */
+	public AssetManager getAssets() {
+		return (m_assets == null) ? AssetManager.instance() : m_assets;
 	}
 
 	/**
@@ -159,6 +612,9 @@ public class Game {
 		if (m_systems.contains(system))
 			throw new GameException("Cannot add the same EntitySystem twice!");
 		m_systems.add(system);
+		m_members.put(system, collectMembers(system, m_scenes.getCurrentScene()));
+		m_scheduler.schedule(m_systems);
+		lookUpTimings();
 	}
 
 	/**
@@ -170,6 +626,9 @@ public class Game {
 		if (!m_systems.contains(system))
 			throw new GameException("Cannot remove a nonexistant EntitySystem!");
 		m_systems.remove(system);
+		m_members.remove(system);
+		m_scheduler.schedule(m_systems);
+		lookUpTimings();
 	}
 
 	/**
@@ -0,0 +1,180 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import commons.Logger;
+
+import engine.core.exceptions.GameException;
+
+/**
+ * Runs many independent Games at a fixed step on a pool of threads, like the matches of a game server. Each Game is
+ * driven by its own GameLoop, which is advanced by the real time since its last tick, so a Game which falls behind
+ * catches up like it would on its own thread. A Game is only ever updated by one thread at a time, but may move between
+ * the threads of the pool from one tick to the next.
+ *
+ * The Games should not share mutable state: give each its own Scenes, EntitySystems and AssetManager (see
+ * Game.setAssets()). A Game which throws is stopped and its failure kept, and the other Games keep running.
+ */
+public class GameHost {
+	private static final AtomicInteger s_hosts = new AtomicInteger();
+
+	private ScheduledThreadPoolExecutor m_executor;
+	private float m_stepsPerSecond;
+	private Map<Game, Hosted> m_games;
+
+	/**
+	 * Initializes a GameHost with one thread per available processor.
+	 *
+	 * @param stepsPerSecond
+	 *            how many times per second each Game is updated
+	 */
+	public GameHost(float stepsPerSecond) {
+		this(stepsPerSecond, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initializes a GameHost.
+	 *
+	 * @param stepsPerSecond
+	 *            how many times per second each Game is updated
+	 * @param threads
+	 *            the number of threads the Games are updated on
+	 */
+	public GameHost(float stepsPerSecond, int threads) {
+		if (stepsPerSecond <= 0)
+			throw new GameException("Steps per second must be positive!");
+		if (threads < 1)
+			throw new GameException("A GameHost needs at least one thread!");
+		m_stepsPerSecond = stepsPerSecond;
+		m_games = new HashMap<Game, Hosted>();
+
+		final int host = s_hosts.incrementAndGet();
+		m_executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+			private AtomicInteger m_count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "GameHost-" + host + "-" + m_count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		m_executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Starts updating a Game. The Game should already be started.
+	 *
+	 * @param game
+	 * @return the GameLoop which drives the Game, to set a FrameListener or the max steps on
+	 */
+	public synchronized GameLoop addGame(Game game) {
+		if (m_executor.isShutdown())
+			throw new GameException("Cannot add a Game to a GameHost which was shut down!");
+		if (m_games.containsKey(game))
+			throw new GameException("Cannot add the same Game twice!");
+
+		Hosted hosted = new Hosted(game, new GameLoop(game, m_stepsPerSecond));
+		long period = (long) (1000000000L / m_stepsPerSecond);
+		hosted.m_future = m_executor.scheduleAtFixedRate(hosted, period, period, TimeUnit.NANOSECONDS);
+		m_games.put(game, hosted);
+		return hosted.m_loop;
+	}
+
+	/**
+	 * Stops updating a Game. If it is being updated, the update finishes first on its thread.
+	 *
+	 * @param game
+	 */
+	public synchronized void removeGame(Game game) {
+		Hosted hosted = m_games.remove(game);
+		if (hosted == null)
+			throw new GameException("Game is not in the GameHost!");
+		hosted.m_future.cancel(false);
+	}
+
+	/**
+	 * @return the Games in the GameHost, including ones which failed
+	 */
+	public synchronized List<Game> getGames() {
+		return new ArrayList<Game>(m_games.keySet());
+	}
+
+	/**
+	 * @param game
+	 * @return the exception or Error which stopped the Game, or null if it hasn't failed
+	 */
+	public synchronized Throwable getFailure(Game game) {
+		Hosted hosted = m_games.get(game);
+		if (hosted == null)
+			throw new GameException("Game is not in the GameHost!");
+		return hosted.m_failure;
+	}
+
+	/**
+	 * @return how many times per second each Game is updated
+	 */
+	public float getStepsPerSecond() {
+		return m_stepsPerSecond;
+	}
+
+	/**
+	 * Stops updating every Game and waits for the updates in progress to finish.
+	 *
+	 * @param timeoutMillis
+	 *            how long to wait
+	 * @return whether every update finished in time
+	 */
+	public boolean shutdown(long timeoutMillis) {
+		synchronized (this) {
+			for (Hosted hosted : m_games.values())
+				hosted.m_future.cancel(false);
+			m_executor.shutdown();
+		}
+		try {
+			return m_executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Ticks one Game.
+	 */
+	private static class Hosted implements Runnable {
+		private Game m_game;
+		private GameLoop m_loop;
+		private volatile ScheduledFuture<?> m_future;
+		private long m_last;
+		private volatile Throwable m_failure;
+
+		public Hosted(Game game, GameLoop loop) {
+			m_game = game;
+			m_loop = loop;
+			m_last = System.nanoTime();
+		}
+
+		@Override
+		public void run() {
+			long now = System.nanoTime();
+			try {
+				m_loop.advance(now - m_last);
+			} catch (Throwable e) {
+				// throwing would also cancel the task, but silently, including for Errors such as failed assertions
+				m_failure = e;
+				Logger.instance().error("Game " + m_game + " failed and was stopped: " + e);
+				m_future.cancel(false);
+			}
+			m_last = now;
+		}
+	}
+}
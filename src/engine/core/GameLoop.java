@@ -0,0 +1,229 @@
+package engine.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+import engine.core.exceptions.GameException;
+
+/**
+ * Drives a Game with a fixed simulation step. Real time is added to an accumulator and the Game is updated with the
+ * step once for every whole step in it, so physics sees the same delta however fast the machine is. If the loop falls
+ * behind it only catches up a limited number of steps per frame and drops the rest, so a slow frame can't snowball.
+ * Between frames the loop waits for the next step according to its Pacing instead of spinning a core.
+ *
+ * The fraction of a step left in the accumulator is the interpolation alpha, which a FrameListener can use to blend
+ * between the last two simulated states.
+ */
+public class GameLoop {
+	/**
+	 * How the loop waits for the next step.
+	 */
+	public enum Pacing {
+		/**
+		 * Sleeps until shortly before the next step, then yields until it is due. Uses the least CPU.
+		 */
+		SLEEP,
+		/**
+		 * Yields until the next step is due. More exact, but keeps a core busy.
+		 */
+		YIELD,
+		/**
+		 * Doesn't wait, so frames run back to back and keep a core busy. Useful for benchmarks.
+		 */
+		NONE
+	}
+
+	/**
+	 * Told after each frame of the loop.
+	 */
+	public interface FrameListener {
+		/**
+		 * Called after the steps of a frame have run.
+		 *
+		 * @param steps
+		 *            the number of steps run this frame, which may be 0
+		 * @param alpha
+		 *            the fraction of a step left in the accumulator, from 0 to 1
+		 */
+		public void frameDone(int steps, float alpha);
+	}
+
+	// how long before the next step to stop sleeping and start yielding, for the inexactness of sleeping
+	private static final long SLEEP_SLACK = 1000000L;
+
+	private Game m_game;
+	private long m_stepNanos;
+	private int m_maxSteps;
+	private Pacing m_pacing;
+	private FrameListener m_listener;
+
+	private long m_accumulator;
+	private long m_steps;
+	private volatile boolean m_running;
+
+	/**
+	 * Initializes a GameLoop which updates a Game a number of times per second, catching up at most 5 steps per frame
+	 * and sleeping between frames.
+	 *
+	 * @param game
+	 * @param stepsPerSecond
+	 */
+	public GameLoop(Game game, float stepsPerSecond) {
+		if (game == null)
+			throw new GameException("Cannot loop a null Game!");
+		m_game = game;
+		setStepsPerSecond(stepsPerSecond);
+		m_maxSteps = 5;
+		m_pacing = Pacing.SLEEP;
+	}
+
+	/**
+	 * Sets how many times per second the Game is updated.
+	 *
+	 * @param stepsPerSecond
+	 */
+	public void setStepsPerSecond(float stepsPerSecond) {
+		if (stepsPerSecond <= 0)
+			throw new GameException("The steps per second must be positive!");
+		m_stepNanos = (long) (1000000000.0 / stepsPerSecond);
+	}
+
+	/**
+	 * @return the length of a step in milliseconds, which is the time given to game.update()
+	 */
+	public float getStep() {
+		return m_stepNanos / 1000000f;
+	}
+
+	/**
+	 * Sets the most steps run in one frame. Time beyond that is dropped.
+	 *
+	 * @param maxSteps
+	 */
+	public void setMaxSteps(int maxSteps) {
+		if (maxSteps < 1)
+			throw new GameException("At least one step must be allowed per frame!");
+		m_maxSteps = maxSteps;
+	}
+
+	/**
+	 * @return the most steps run in one frame
+	 */
+	public int getMaxSteps() {
+		return m_maxSteps;
+	}
+
+	/**
+	 * Sets how the loop waits between frames.
+	 *
+	 * @param pacing
+	 */
+	public void setPacing(Pacing pacing) {
+		if (pacing == null)
+			throw new GameException("Cannot set null Pacing!");
+		m_pacing = pacing;
+	}
+
+	/**
+	 * @return how the loop waits between frames
+	 */
+	public Pacing getPacing() {
+		return m_pacing;
+	}
+
+	/**
+	 * Sets the FrameListener.
+	 *
+	 * @param listener
+	 *            the listener, or null for none
+	 */
+	public void setFrameListener(FrameListener listener) {
+		m_listener = listener;
+	}
+
+	/**
+	 * @return the fraction of a step left in the accumulator, from 0 to 1
+	 */
+	public float getAlpha() {
+		return (float) m_accumulator / m_stepNanos;
+	}
+
+	/**
+	 * @return the number of steps run since the loop was made
+	 */
+	public long getStepCount() {
+		return m_steps;
+	}
+
+	/**
+	 * @return whether run() is looping
+	 */
+	public boolean isRunning() {
+		return m_running;
+	}
+
+	/**
+	 * Adds elapsed real time to the accumulator and runs the steps it covers. run() calls this once per frame, but it
+	 * can also be called directly by a loop of your own.
+	 *
+	 * @param elapsedNanos
+	 * @return the number of steps run
+	 */
+	public int advance(long elapsedNanos) {
+		m_accumulator += elapsedNanos;
+		int steps = 0;
+		float step = getStep();
+		while (m_accumulator >= m_stepNanos && steps < m_maxSteps) {
+			m_game.update(step);
+			m_accumulator -= m_stepNanos;
+			m_steps++;
+			steps++;
+		}
+		// too far behind to catch up, so the rest of the time is dropped
+		if (m_accumulator >= m_stepNanos)
+			m_accumulator %= m_stepNanos;
+
+		if (m_listener != null)
+			m_listener.frameDone(steps, getAlpha());
+		return steps;
+	}
+
+	/**
+	 * Loops on the calling thread until stop() is called. The Game should already be started.
+	 */
+	public void run() {
+		m_running = true;
+		long last = System.nanoTime();
+		while (m_running) {
+			long now = System.nanoTime();
+			advance(now - last);
+			last = now;
+			waitForStep(now);
+		}
+	}
+
+	/**
+	 * Makes run() return after the frame it is on. May be called from any thread.
+	 */
+	public void stop() {
+		m_running = false;
+	}
+
+	/**
+	 * Waits until the accumulator will hold a whole step.
+	 *
+	 * @param frameStart
+	 *            when the time in the accumulator was measured
+	 */
+	private void waitForStep(long frameStart) {
+		if (m_pacing == Pacing.NONE)
+			return;
+		long deadline = frameStart + (m_stepNanos - m_accumulator);
+		if (m_pacing == Pacing.SLEEP) {
+			long sleep = deadline - System.nanoTime() - SLEEP_SLACK;
+			if (sleep > 0)
+				LockSupport.parkNanos(sleep);
+		}
+		while (m_running && System.nanoTime() < deadline)
+			Thread.yield();
+	}
+}
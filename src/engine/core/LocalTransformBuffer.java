@@ -0,0 +1,143 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * The local transforms of all the Entities in a Scene, stored in primitive arrays indexed by Entity slot. The
+ * CTransforms of the Scene's Entities are handles into this buffer, so moving an Entity doesn't allocate, and bulk
+ * consumers can read the transforms without going through Transform2f objects.
+ */
+public class LocalTransformBuffer {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private float[] m_x;
+	private float[] m_y;
+	private float[] m_rotation;
+	private float[] m_scaleX;
+	private float[] m_scaleY;
+
+	/**
+	 * Initializes an empty LocalTransformBuffer.
+	 */
+	protected LocalTransformBuffer() {
+		m_x = new float[INITIAL_CAPACITY];
+		m_y = new float[INITIAL_CAPACITY];
+		m_rotation = new float[INITIAL_CAPACITY];
+		m_scaleX = new float[INITIAL_CAPACITY];
+		m_scaleY = new float[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Makes room for a slot.
+	 *
+	 * @param slot
+	 */
+	protected void ensureCapacity(int slot) {
+		if (slot < m_x.length)
+			return;
+		int capacity = Math.max(slot + 1, m_x.length * 2);
+		m_x = Arrays.copyOf(m_x, capacity);
+		m_y = Arrays.copyOf(m_y, capacity);
+		m_rotation = Arrays.copyOf(m_rotation, capacity);
+		m_scaleX = Arrays.copyOf(m_scaleX, capacity);
+		m_scaleY = Arrays.copyOf(m_scaleY, capacity);
+	}
+
+	/**
+	 * Stores the local transform of a slot.
+	 *
+	 * @param slot
+	 * @param x
+	 * @param y
+	 * @param rotation
+	 * @param scaleX
+	 * @param scaleY
+	 */
+	protected void set(int slot, float x, float y, float rotation, float scaleX, float scaleY) {
+		m_x[slot] = x;
+		m_y[slot] = y;
+		m_rotation[slot] = rotation;
+		m_scaleX[slot] = scaleX;
+		m_scaleY[slot] = scaleY;
+	}
+
+	/**
+	 * @param slot
+	 * @return the local x translation of the slot
+	 */
+	protected float getX(int slot) {
+		return m_x[slot];
+	}
+
+	/**
+	 * @param slot
+	 * @return the local y translation of the slot
+	 */
+	protected float getY(int slot) {
+		return m_y[slot];
+	}
+
+	/**
+	 * @param slot
+	 * @return the local rotation of the slot
+	 */
+	protected float getRotation(int slot) {
+		return m_rotation[slot];
+	}
+
+	/**
+	 * @param slot
+	 * @return the local x scale of the slot
+	 */
+	protected float getScaleX(int slot) {
+		return m_scaleX[slot];
+	}
+
+	/**
+	 * @param slot
+	 * @return the local y scale of the slot
+	 */
+	protected float getScaleY(int slot) {
+		return m_scaleY[slot];
+	}
+
+	/**
+	 * @param entity
+	 * @return the local x translation
+	 */
+	public float getX(Entity entity) {
+		return m_x[entity.getSlot()];
+	}
+
+	/**
+	 * @param entity
+	 * @return the local y translation
+	 */
+	public float getY(Entity entity) {
+		return m_y[entity.getSlot()];
+	}
+
+	/**
+	 * @param entity
+	 * @return the local rotation
+	 */
+	public float getRotation(Entity entity) {
+		return m_rotation[entity.getSlot()];
+	}
+
+	/**
+	 * @param entity
+	 * @return the local x scale
+	 */
+	public float getScaleX(Entity entity) {
+		return m_scaleX[entity.getSlot()];
+	}
+
+	/**
+	 * @param entity
+	 * @return the local y scale
+	 */
+	public float getScaleY(Entity entity) {
+		return m_scaleY[entity.getSlot()];
+	}
+}
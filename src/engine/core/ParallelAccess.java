@@ -0,0 +1,88 @@
+package engine.core;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Checks the contract of a parallel updateEntity(). When a ScheduledSystem's isEntityUpdateParallel() is true, its
+ * updateEntity() is called for many Entities at once from worker threads, so for the duration of the call it may only:
+ * <ul>
+ * <li>touch the Entity it was given, and no other Entity;</li>
+ * <li>touch the Components the system declares in getReadComponents() and getWrittenComponents();</li>
+ * <li>change its own state if that state is per-Entity or synchronized.</li>
+ * </ul>
+ * It may not create, destroy, enable, disable, move or rename Entities, change listeners, call scripts or read world
+ * transforms. Work like that belongs in postUpdate().
+ *
+ * The checks are Java assertions, so they only run when the JVM is started with -ea.
+ */
+public class ParallelAccess {
+	private static final ThreadLocal<ParallelAccess> s_current = new ThreadLocal<ParallelAccess>();
+	private static final boolean s_checking;
+
+	static {
+		boolean checking = false;
+		assert checking = true;
+		s_checking = checking;
+	}
+
+	private Entity m_entity;
+	private Set<String> m_components;
+
+	private ParallelAccess(Set<String> components) {
+		m_components = components;
+	}
+
+	/**
+	 * @return whether assertions are enabled, so the contract is being checked
+	 */
+	public static boolean isChecking() {
+		return s_checking;
+	}
+
+	/**
+	 * Starts checking the calling thread against a ScheduledSystem's declared Components.
+	 *
+	 * @param system
+	 */
+	protected static void begin(ScheduledSystem system) {
+		Set<String> components = new HashSet<String>();
+		Collections.addAll(components, system.getReadComponents());
+		Collections.addAll(components, system.getWrittenComponents());
+		s_current.set(new ParallelAccess(components));
+	}
+
+	/**
+	 * Sets the Entity the calling thread is updating.
+	 *
+	 * @param entity
+	 */
+	protected static void setEntity(Entity entity) {
+		s_current.get().m_entity = entity;
+	}
+
+	/**
+	 * Stops checking the calling thread.
+	 */
+	protected static void end() {
+		s_current.remove();
+	}
+
+	/**
+	 * @param entity
+	 * @param component
+	 * @return whether the calling thread may touch the Component of the Entity
+	 */
+	public static boolean mayAccess(Entity entity, String component) {
+		ParallelAccess access = s_current.get();
+		return access == null || (access.m_entity == entity && access.m_components.contains(component));
+	}
+
+	/**
+	 * @return whether the calling thread may change the structure of a Scene
+	 */
+	public static boolean mayChangeStructure() {
+		return s_current.get() == null;
+	}
+}
@@ -2,15 +2,17 @@ package engine.core;
 
 import java.awt.geom.AffineTransform;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import commons.Transform2f;
-import commons.matrix.Vector2f;
 
 import engine.core.CTransform.TransformMode;
 import engine.core.exceptions.EntityException;
@@ -21,10 +23,40 @@ import engine.core.script.XScript;
  * Creates, destroys, and moves Entities in the tree.
  */
 public class Scene implements TreeNode {
+	private static final AffineTransform IDENTITY = new AffineTransform();
+
 	// the top level entities are practically the children of the EntityContainer aspect of the Scene
 	private Map<String, Entity> m_rootEntities;
 	// private List<Entity> m_rootEntities;
-	private List<Entity> m_allEntities;
+	private EntityList m_allEntities;
+
+	// hands out the Entity slots, reusing the slots of destroyed Entities
+	private int m_nextSlot;
+	private int[] m_freeSlots = new int[16];
+	private int m_freeSlotCount;
+
+	// the local transforms by slot, which the CTransforms of the Entities point into
+	private LocalTransformBuffer m_localTransforms;
+	// the world transforms by slot, and the Entities whose world transform went stale since the last pass
+	private WorldTransformBuffer m_worldTransforms;
+	private List<Entity> m_dirtyTransforms;
+	// the world bounds of the Entities, if the Scene is spatially indexed
+	private SpatialGrid m_spatial;
+
+	// reuses destroyed Entities if set
+	private EntityPool m_pool;
+	// write the state of other Components to snapshots, by Component name
+	private Map<String, ComponentCodec<? extends Component>> m_codecs;
+	private ComponentCodec<?>[] m_codecList;
+	// destroyed Entities waiting for their events to be delivered before going in the pool
+	private List<Entity> m_retired;
+
+	// structural changes made while deferring are recorded here until the next flush
+	private CommandBuffer m_commands;
+	private int m_deferring;
+	// while batching, the added Entities whose events haven't been sent yet
+	private int m_batching;
+	private List<Entity> m_added;
 	// private List<String> m_childNames;
 	private Game m_game;
 
@@ -37,7 +69,14 @@ public class Scene implements TreeNode {
 	 */
 	public Scene(Game game) {
 		m_rootEntities = new HashMap<String, Entity>();
-		m_allEntities = new ArrayList<Entity>();
+		m_allEntities = new EntityList();
+		m_localTransforms = new LocalTransformBuffer();
+		m_worldTransforms = new WorldTransformBuffer(this);
+		m_dirtyTransforms = new ArrayList<Entity>();
+		m_commands = new CommandBuffer();
+		m_retired = new ArrayList<Entity>();
+		m_codecs = new LinkedHashMap<String, ComponentCodec<? extends Component>>();
+		m_codecList = new ComponentCodec<?>[0];
 		m_game = game;
 	}
 
@@ -45,8 +84,17 @@ public class Scene implements TreeNode {
 	 * Calls onSceneLoad() on all the Entities.
 	 */
 	public void onSceneLoad() {
-		for (Entity entity : m_allEntities)
-			entity.onSceneLoad();
+		m_allEntities.beginWalk();
+		try {
+			int slots = m_allEntities.slots();
+			for (int i = 0; i < slots; i++) {
+				Entity entity = m_allEntities.get(i);
+				if (entity != null)
+					entity.onSceneLoad();
+			}
+		} finally {
+			m_allEntities.endWalk();
+		}
 	}
 
 	/**
@@ -55,10 +103,18 @@ public class Scene implements TreeNode {
 	 * @param time
 	 */
 	public void updateScripts(float time) {
-		// so that created Entities work
-		List<Entity> clone = new ArrayList<Entity>(m_allEntities);
-		for (Entity entity : clone)
-			entity.updateScripts(time);
+		m_allEntities.beginWalk();
+		try {
+			// Entities created by the Scripts are first updated next frame
+			int slots = m_allEntities.slots();
+			for (int i = 0; i < slots; i++) {
+				Entity entity = m_allEntities.get(i);
+				if (entity != null)
+					entity.updateScripts(time);
+			}
+		} finally {
+			m_allEntities.endWalk();
+		}
 	}
 
 	/**
@@ -79,11 +135,12 @@ public class Scene implements TreeNode {
 	 * @return
 	 */
 	public Entity createEntity(String name, TreeNode parent, EntityBuilder builder) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot create an Entity during a parallel updateEntity()!";
 		if (parent == null)
 			throw new SceneException("Cannot create an Entity with a null parent!");
 		if (name == null)
 			throw new SceneException("Cannot create an Entity with a null name!");
-		if (!m_allEntities.contains(parent) && !(this == parent))
+		if (!containsNode(parent) && !m_commands.isPending(parent))
 			throw new SceneException("Trying to create an Entity in a container not in the Scene!");
 
 		List<Component> components = new ArrayList<Component>();
@@ -91,7 +148,8 @@ public class Scene implements TreeNode {
 			components.add(componentBuilder.build());
 		}
 
-		Entity entity = new Entity(name, this, parent, components, builder.getTagList(), new Transform2f(builder.getTransform()));
+		Entity entity = newEntity(name, parent, components, builder.getTagList(), new Transform2f(builder.getTransform()),
+				null);
 
 		entity.transform().setTransformMode(builder.getTransformMode());
 
@@ -100,18 +158,21 @@ public class Scene implements TreeNode {
 			entity.scriptData().setData(s, scriptData.get(s));
 		}
 
-		parent.addChild(entity);
-		m_allEntities.add(entity);
-		m_game.entityAdded(entity, parent, this);
+		attach(entity, parent);
 		Map<String, EntityBuilder> children = builder.getEntityBuilders();
 		Set<String> keys = children.keySet();
 		for (String childName : keys) {
 			createEntity(childName, entity, children.get(childName));
 		}
 
-		List<XScript> scripts = builder.getScripts();
-		for (XScript script : scripts)
-			entity.scripts().add(script.duplicate());
+		List<XScript> scripts = new ArrayList<XScript>();
+		for (XScript script : builder.getScripts())
+			scripts.add(script.duplicate());
+		if (isDeferring()) {
+			m_commands.add(CommandBuffer.ADD_SCRIPTS, entity, null, scripts);
+		} else {
+			addScripts(entity, scripts);
+		}
 		return entity;
 	}
 
@@ -124,18 +185,535 @@ public class Scene implements TreeNode {
 	 * @return
 	 */
 	public Entity createEntity(String name, TreeNode parent) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot create an Entity during a parallel updateEntity()!";
+		if (parent == null)
+			throw new SceneException("Cannot create an Entity with a null parent!");
+		if (name == null)
+			throw new SceneException("Cannot create an Entity with a null name!");
+		if (!containsNode(parent) && !m_commands.isPending(parent))
+			throw new SceneException("Trying to create an Entity in a container not in the Scene!");
+
+		Entity entity = newEntity(name, parent, new ArrayList<Component>(), new TagList(), new Transform2f(), null);
+		attach(entity, parent);
+		return entity;
+	}
+
+	/**
+	 * Creates a child Entity of a parent container from a compiled EntityPlan. This does the same as createEntity()
+	 * with the EntityBuilder the plan was compiled from, except that the Scripts are added once every Entity of the
+	 * instance is in the Scene, children before their parents.
+	 * 
+	 * @param plan
+	 * @param name
+	 *            the name of the root Entity
+	 * @param parent
+	 * @return the root Entity
+	 */
+	public Entity instantiate(EntityPlan plan, String name, TreeNode parent) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot create an Entity during a parallel updateEntity()!";
+		checkCreate(plan, name, parent);
+
+		Entity[] entities;
+		beginBatch();
+		try {
+			entities = attachPlan(plan, name, parent, null);
+		} finally {
+			endBatch();
+		}
+		addPlanScripts(plan, entities);
+		return entities[0];
+	}
+
+	/**
+	 * Creates many instances of an EntityBuilder in one go. The instances are children of the parent container named
+	 * name0, name1 and so on. The EntitySystems are told about all of them at once, so BatchedSystems can add them in
+	 * bulk, and the Scripts are added once every instance is in the Scene.
+	 * 
+	 * @param name
+	 *            the start of the names of the instances
+	 * @param parent
+	 * @param builder
+	 * @param count
+	 * @return the root Entities of the instances
+	 */
+	public List<Entity> createEntities(String name, TreeNode parent, EntityBuilder builder, int count) {
+		return createEntities(name, parent, new EntityPlan(builder), count);
+	}
+
+	/**
+	 * Creates an instance of an EntityBuilder for each transform in one go. The instances are named as in
+	 * createEntities(name, parent, builder, count).
+	 * 
+	 * @param name
+	 * @param parent
+	 * @param builder
+	 * @param transforms
+	 *            the local transforms of the instances, which replace the builder's transform
+	 * @return the root Entities of the instances
+	 */
+	public List<Entity> createEntities(String name, TreeNode parent, EntityBuilder builder, Transform2f[] transforms) {
+		return createEntities(name, parent, new EntityPlan(builder), transforms);
+	}
+
+	/**
+	 * Creates many instances of an EntityPlan in one go. The instances are named as in createEntities(name, parent,
+	 * builder, count).
+	 * 
+	 * @param name
+	 * @param parent
+	 * @param plan
+	 * @param count
+	 * @return the root Entities of the instances
+	 */
+	public List<Entity> createEntities(String name, TreeNode parent, EntityPlan plan, int count) {
+		if (count < 0)
+			throw new SceneException("Cannot create a negative number of Entities!");
+		return createInstances(name, parent, plan, count, null);
+	}
+
+	/**
+	 * Creates an instance of an EntityPlan for each transform in one go. The instances are named as in
+	 * createEntities(name, parent, builder, count).
+	 * 
+	 * @param name
+	 * @param parent
+	 * @param plan
+	 * @param transforms
+	 *            the local transforms of the instances, which replace the plan's transform
+	 * @return the root Entities of the instances
+	 */
+	public List<Entity> createEntities(String name, TreeNode parent, EntityPlan plan, Transform2f[] transforms) {
+		if (transforms == null)
+			throw new SceneException("Cannot create Entities with null transforms!");
+		return createInstances(name, parent, plan, transforms.length, transforms);
+	}
+
+	private List<Entity> createInstances(String name, TreeNode parent, EntityPlan plan, int count,
+			Transform2f[] transforms) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot create an Entity during a parallel updateEntity()!";
+		checkCreate(plan, name, parent);
+
+		reserveSlots(count * plan.getSize());
+		Entity[][] instances = new Entity[count][];
+		beginBatch();
+		try {
+			for (int i = 0; i < count; i++) {
+				Transform2f transform = (transforms == null) ? null : transforms[i];
+				instances[i] = attachPlan(plan, name + i, parent, transform);
+			}
+		} finally {
+			endBatch();
+		}
+
+		List<Entity> roots = new ArrayList<Entity>(count);
+		for (Entity[] entities : instances) {
+			addPlanScripts(plan, entities);
+			roots.add(entities[0]);
+		}
+		return roots;
+	}
+
+	private void checkCreate(EntityPlan plan, String name, TreeNode parent) {
+		if (plan == null)
+			throw new SceneException("Cannot instantiate a null EntityPlan!");
 		if (parent == null)
 			throw new SceneException("Cannot create an Entity with a null parent!");
 		if (name == null)
 			throw new SceneException("Cannot create an Entity with a null name!");
-		if (!m_allEntities.contains(parent) && !(this == parent))
+		if (!containsNode(parent) && !m_commands.isPending(parent))
 			throw new SceneException("Trying to create an Entity in a container not in the Scene!");
+	}
+
+	/**
+	 * Constructs and attaches the Entities of an instance of a plan.
+	 * 
+	 * @param transform
+	 *            the local transform of the root, or null to use the plan's
+	 * @return the Entities in the plan's order
+	 */
+	private Entity[] attachPlan(EntityPlan plan, String name, TreeNode parent, Transform2f transform) {
+		int size = plan.getSize();
+		Entity[] entities = new Entity[size];
+		for (int i = 0; i < size; i++) {
+			int parentIndex = plan.getParent(i);
+			boolean root = parentIndex < 0;
+			TreeNode entityParent = root ? parent : entities[parentIndex];
+			String entityName = root ? name : plan.getName(i);
+			Transform2f entityTransform = (root && transform != null) ? new Transform2f(transform) : plan
+					.buildTransform(i);
+
+			Entity entity = newEntity(entityName, entityParent, plan.buildComponents(i), plan.getTags(i),
+					entityTransform, plan.getSignature(i));
+			entity.transform().setTransformMode(plan.getTransformMode(i));
+			plan.applyScriptData(i, entity);
+			attach(entity, entityParent);
+			entities[i] = entity;
+		}
+		return entities;
+	}
+
+	/**
+	 * Adds the Scripts of an instance of a plan, children before their parents.
+	 */
+	private void addPlanScripts(EntityPlan plan, Entity[] entities) {
+		boolean deferring = isDeferring();
+		for (int i = 0; i < entities.length; i++) {
+			int index = plan.getScriptOrder(i);
+			List<XScript> scripts = plan.buildScripts(index);
+			if (scripts.isEmpty())
+				continue;
+			if (deferring) {
+				m_commands.add(CommandBuffer.ADD_SCRIPTS, entities[index], null, scripts);
+			} else {
+				addScripts(entities[index], scripts);
+			}
+		}
+	}
+
+	/**
+	 * Makes room in the transform buffers for a number of new Entities, so they only grow once.
+	 * 
+	 * @param count
+	 */
+	private void reserveSlots(int count) {
+		int last = m_nextSlot + count - m_freeSlotCount - 1;
+		if (last < 0)
+			return;
+		m_localTransforms.ensureCapacity(last);
+		m_worldTransforms.ensureCapacity(last);
+	}
+
+	/**
+	 * Starts collecting the Entities added to the Scene, so the Game can be told about them in one batch. Calls nest.
+	 */
+	private void beginBatch() {
+		if (m_batching++ == 0)
+			m_added = new ArrayList<Entity>();
+	}
+
+	/**
+	 * Tells the Game about the collected Entities if this is the outermost call.
+	 */
+	private void endBatch() {
+		if (--m_batching > 0)
+			return;
+		List<Entity> added = m_added;
+		m_added = null;
+		if (!added.isEmpty())
+			m_game.entitiesAdded(added, this);
+	}
+
+	/**
+	 * Constructs an Entity, reusing one from the EntityPool if there is one.
+	 * 
+	 * @param componentSignature
+	 *            the ids of the Component names, or null to work them out
+	 */
+	private Entity newEntity(String name, TreeNode parent, List<Component> components, TagList tags,
+			Transform2f transform, Signature componentSignature) {
+		Entity entity = (m_pool == null) ? null : m_pool.obtain();
+		if (entity == null)
+			return new Entity(name, this, parent, components, tags, transform, componentSignature);
+		entity.recycle(name, this, parent, components, tags, transform, componentSignature);
+		return entity;
+	}
+
+	/**
+	 * Sets the EntityPool which destroyed Entities are put in and new Entities taken from. Pooling is off by default.
+	 * 
+	 * @param pool
+	 *            the pool, or null to stop pooling
+	 */
+	public void setEntityPool(EntityPool pool) {
+		m_pool = pool;
+	}
+
+	/**
+	 * @return the EntityPool, or null if pooling is off
+	 */
+	public EntityPool getEntityPool() {
+		return m_pool;
+	}
+
+	/**
+	 * Adds a ComponentCodec, so snapshots include the state of its type of Component. CTransform, CTags and
+	 * CScriptData are always included.
+	 * 
+	 * @param codec
+	 */
+	public void addSnapshotCodec(ComponentCodec<? extends Component> codec) {
+		if (codec == null)
+			throw new SceneException("Cannot add a null ComponentCodec!");
+		String name = codec.getName();
+		if (name == null)
+			throw new SceneException("Cannot add a ComponentCodec with a null name!");
+		if (name.equals(CTransform.NAME) || name.equals(CTags.NAME) || name.equals(CScriptData.NAME))
+			throw new SceneException("The " + name + " Component is always in snapshots!");
+		if (m_codecs.containsKey(name))
+			throw new SceneException("Cannot add two ComponentCodecs for: " + name);
+		// the index of the codec is written as a byte
+		if (m_codecs.size() == Byte.MAX_VALUE)
+			throw new SceneException("Too many ComponentCodecs!");
+		m_codecs.put(name, codec);
+		m_codecList = m_codecs.values().toArray(new ComponentCodec<?>[m_codecs.size()]);
+	}
+
+	/**
+	 * @param name
+	 * @return the ComponentCodec for the Component name, or null if there is none
+	 */
+	protected ComponentCodec<? extends Component> getSnapshotCodec(String name) {
+		return m_codecs.get(name);
+	}
+
+	/**
+	 * Captures the state of the Scene in a new SceneSnapshot. Should be called between updates.
+	 * 
+	 * @return the SceneSnapshot
+	 */
+	public SceneSnapshot snapshot() {
+		SceneSnapshot snapshot = new SceneSnapshot();
+		snapshot(snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * Captures the state of the Scene into an existing SceneSnapshot, reusing its buffer. Should be called between
+	 * updates.
+	 * 
+	 * @param snapshot
+	 */
+	public void snapshot(SceneSnapshot snapshot) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot snapshot the Scene during a parallel updateEntity()!";
+		if (snapshot == null)
+			throw new SceneException("Cannot snapshot into a null SceneSnapshot!");
+		if (isDeferring())
+			throw new SceneException("Cannot snapshot the Scene while it is deferring structural changes!");
+		snapshot.capture(this, m_codecList);
+	}
+
+	/**
+	 * Puts the state captured in a SceneSnapshot back. If the Scene has the same Entities as when it was captured they
+	 * are restored in place; otherwise the Entities are destroyed and re-created to match. Should be called between
+	 * updates.
+	 * 
+	 * @param snapshot
+	 */
+	public void restore(SceneSnapshot snapshot) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot restore the Scene during a parallel updateEntity()!";
+		if (snapshot == null)
+			throw new SceneException("Cannot restore a null SceneSnapshot!");
+		if (isDeferring())
+			throw new SceneException("Cannot restore the Scene while it is deferring structural changes!");
+		snapshot.restore(this);
+	}
+
+	/**
+	 * Adds a newly constructed Entity to the Scene, or records it if the Scene is deferring.
+	 * 
+	 * @param entity
+	 * @param parent
+	 */
+	private void attach(Entity entity, TreeNode parent) {
+		if (isDeferring()) {
+			m_commands.add(CommandBuffer.ATTACH, entity, parent, null);
+		} else {
+			addEntity(entity, parent);
+		}
+	}
+
+	private void addScripts(Entity entity, List<XScript> scripts) {
+		for (XScript script : scripts)
+			entity.scripts().add(script);
+	}
+
+	/**
+	 * Starts recording createEntity(), destroyEntity(), moveEntity(), enable() and disable() instead of applying them.
+	 * Created Entities are returned straight away, but are only added to the Scene, and Scripts only added to them, at
+	 * the next flush. Calls nest, and the Game defers while it updates.
+	 */
+	public void beginDeferring() {
+		m_deferring++;
+	}
+
+	/**
+	 * Applies the recorded changes and, if this is the outermost call, stops deferring.
+	 */
+	public void endDeferring() {
+		if (m_deferring == 0)
+			throw new SceneException("The Scene is not deferring structural changes!");
+		try {
+			flushDeferred();
+		} finally {
+			m_deferring--;
+		}
+	}
+
+	/**
+	 * @return whether structural changes are being recorded rather than applied
+	 */
+	public boolean isDeferring() {
+		return m_deferring > 0;
+	}
+
+	/**
+	 * Applies the recorded structural changes in the order they were made. Changes made by the events fired along the
+	 * way are applied too. The checks which need the Scene's current state are made here, so that is where a bad change
+	 * throws: the rest of the changes are still applied, and then the first failure is thrown.
+	 */
+	public void flushDeferred() {
+		RuntimeException failure = null;
+		while (!m_commands.isEmpty()) {
+			// runs of attached Entities are sent to the Game in batches, and runs of destroyed Entities removed in one
+			boolean batching = false;
+			List<Entity> destroyed = new ArrayList<Entity>();
+			for (CommandBuffer.Command command : m_commands.drain()) {
+				boolean attach = command.type == CommandBuffer.ATTACH;
+				if (attach && !batching) {
+					beginBatch();
+					batching = true;
+				} else if (!attach && batching) {
+					batching = false;
+					failure = endBatch(failure);
+				}
 
-		Entity entity = new Entity(name, this, parent, new ArrayList<Component>());
+				if (command.type == CommandBuffer.DESTROY) {
+					destroyed.add(command.entity);
+					continue;
+				}
+				if (!destroyed.isEmpty()) {
+					failure = applyDestroyRun(destroyed, failure);
+					destroyed.clear();
+				}
+				try {
+					apply(command);
+				} catch (RuntimeException e) {
+					if (failure == null)
+						failure = e;
+				}
+			}
+			if (!destroyed.isEmpty())
+				failure = applyDestroyRun(destroyed, failure);
+			if (batching)
+				failure = endBatch(failure);
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	/**
+	 * Ends a batch of deferred attaches, keeping the first failure.
+	 */
+	private RuntimeException endBatch(RuntimeException failure) {
+		try {
+			endBatch();
+		} catch (RuntimeException e) {
+			if (failure == null)
+				failure = e;
+		}
+		return failure;
+	}
+
+	/**
+	 * Destroys a run of deferred destroys, skipping the Entities no longer in the Scene, and keeps the first failure.
+	 */
+	private RuntimeException applyDestroyRun(List<Entity> destroyed, RuntimeException failure) {
+		List<Entity> present = new ArrayList<Entity>(destroyed.size());
+		for (Entity entity : destroyed) {
+			if (m_allEntities.contains(entity))
+				present.add(entity);
+			else if (failure == null)
+				failure = new SceneException("Trying to destroy an Entity not in the Scene!");
+		}
+		if (present.isEmpty())
+			return failure;
+		try {
+			applyDestroy(present);
+		} catch (RuntimeException e) {
+			if (failure == null)
+				failure = e;
+		}
+		return failure;
+	}
+
+	/**
+	 * Applies a recorded change. An Entity whose attach failed is destroyed, so the changes recorded after it for the
+	 * Entity or its children are skipped rather than applied to an Entity which isn't in the Scene.
+	 * 
+	 * @param command
+	 */
+	private void apply(CommandBuffer.Command command) {
+		Entity entity = command.entity;
+		if (command.type != CommandBuffer.ATTACH && !m_allEntities.contains(entity)) {
+			// its Scripts would never run, and its failed attach has already been reported
+			if (command.type == CommandBuffer.ADD_SCRIPTS)
+				return;
+			throw new SceneException("Trying to change an Entity not in the Scene!");
+		}
+
+		switch (command.type) {
+		case CommandBuffer.ATTACH:
+			m_commands.attached(entity);
+			try {
+				if (!containsNode(command.parent))
+					throw new SceneException("Trying to create an Entity in a container not in the Scene!");
+				addEntity(entity, command.parent);
+			} catch (RuntimeException e) {
+				if (!m_allEntities.contains(entity))
+					entity.destroy();
+				throw e;
+			}
+			break;
+		case CommandBuffer.ADD_SCRIPTS:
+			addScripts(entity, command.scripts);
+			break;
+		case CommandBuffer.MOVE:
+			applyMove(entity, command.parent);
+			break;
+		case CommandBuffer.ENABLE:
+			applyEnable(entity);
+			break;
+		case CommandBuffer.DISABLE:
+			applyDisable(entity);
+			break;
+		}
+	}
+
+	/**
+	 * Puts a newly constructed Entity into the tree and the Scene, and notifies the Game.
+	 * 
+	 * @param entity
+	 * @param parent
+	 */
+	private void addEntity(Entity entity, TreeNode parent) {
 		parent.addChild(entity);
+
+		int slot = (m_freeSlotCount > 0) ? m_freeSlots[--m_freeSlotCount] : m_nextSlot++;
+		entity.setSlot(slot);
+		m_localTransforms.ensureCapacity(slot);
+		m_worldTransforms.ensureCapacity(slot);
+		entity.transform().bind(m_localTransforms, slot);
+		m_dirtyTransforms.add(entity);
+
 		m_allEntities.add(entity);
-		m_game.entityAdded(entity, parent, this);
-		return entity;
+		if (m_batching > 0) {
+			m_added.add(entity);
+		} else {
+			m_game.entityAdded(entity, parent, this);
+		}
+	}
+
+	/**
+	 * Returns a destroyed Entity's slot for reuse.
+	 * 
+	 * @param entity
+	 */
+	private void releaseSlot(Entity entity) {
+		if (m_freeSlotCount == m_freeSlots.length)
+			m_freeSlots = Arrays.copyOf(m_freeSlots, m_freeSlots.length * 2);
+		m_freeSlots[m_freeSlotCount++] = entity.getSlot();
+		entity.transform().bind(null, -1);
+		entity.setSlot(-1);
 	}
 
 	/**
@@ -144,28 +722,150 @@ public class Scene implements TreeNode {
 	 * @param entity
 	 */
 	public void destroyEntity(Entity entity) {
-		if (!m_allEntities.contains(entity))
-			throw new SceneException("Trying to destroy an Entity not in the Scene!");
+		assert ParallelAccess.mayChangeStructure() : "Cannot destroy an Entity during a parallel updateEntity()!";
+		if (isDeferring()) {
+			m_commands.add(CommandBuffer.DESTROY, entity, null, null);
+			return;
+		}
+		applyDestroy(entity);
+	}
 
-		entity.tree().getParent().removeChild(entity);
-		recursiveRemove(entity, entity.tree().getParent(), true);
+	/**
+	 * Destroys many Entities and their descendants at once. The EntitySystems are told about all of them together, so
+	 * BatchedSystems can remove them in bulk. Entities which are descendants of others in the list are destroyed with
+	 * them.
+	 * 
+	 * @param entities
+	 */
+	public void destroyEntities(Collection<Entity> entities) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot destroy an Entity during a parallel updateEntity()!";
+		if (entities == null)
+			throw new SceneException("Cannot destroy a null Collection of Entities!");
+		if (isDeferring()) {
+			for (Entity entity : entities)
+				m_commands.add(CommandBuffer.DESTROY, entity, null, null);
+			return;
+		}
+		applyDestroy(entities);
 	}
 
 	/**
-	 * Recursively removes the Entity and its children from the allEntities Set. Will also call destroy() on the
-	 * Entities.
+	 * Destroys every Entity which matches a filter, along with its descendants.
 	 * 
-	 * @param entity
+	 * @param filter
+	 */
+	public void destroyEntities(EntityFilter filter) {
+		destroyEntities(getEntitiesByFilter(filter));
+	}
+
+	/**
+	 * Destroys every child of a TreeNode and their descendants, keeping the TreeNode itself.
+	 * 
+	 * @param node
+	 *            an Entity in the Scene, or the Scene
+	 */
+	public void destroyChildren(TreeNode node) {
+		if (node == null)
+			throw new SceneException("Cannot destroy the children of a null TreeNode!");
+		if (!containsNode(node))
+			throw new SceneException("Trying to destroy the children of a TreeNode not in the Scene!");
+		Collection<Entity> children = (node == this) ? m_rootEntities.values() : ((Entity) node).tree().getChildren();
+		destroyEntities(new ArrayList<Entity>(children));
+	}
+
+	/**
+	 * Destroys every Entity in the Scene, in time linear in the number of Entities.
+	 */
+	public void clear() {
+		destroyChildren(this);
+	}
+
+	private void applyDestroy(Entity entity) {
+		applyDestroy(Collections.singletonList(entity));
+	}
+
+	/**
+	 * Detaches the Entities and removes them with their descendants as one batch.
+	 * 
+	 * @param entities
+	 */
+	private void applyDestroy(Collection<Entity> entities) {
+		for (Entity entity : entities) {
+			if (!m_allEntities.contains(entity))
+				throw new SceneException("Trying to destroy an Entity not in the Scene!");
+		}
+
+		List<Entity> removed = new ArrayList<Entity>();
+		List<TreeNode> parents = new ArrayList<TreeNode>();
+		Set<Entity> collected = new HashSet<Entity>();
+		for (Entity entity : entities) {
+			// already taken with an ancestor, or listed twice
+			if (collected.contains(entity))
+				continue;
+			TreeNode parent = entity.tree().getParent();
+			parent.removeChild(entity);
+			collectSubtree(entity, parent, removed, parents, collected);
+		}
+		removeEntities(removed, parents);
+	}
+
+	/**
+	 * Adds the Entity and its descendants, children before their parents.
 	 */
-	private void recursiveRemove(Entity entity, TreeNode parent, boolean destroy) {
+	private void collectSubtree(Entity entity, TreeNode parent, List<Entity> removed, List<TreeNode> parents,
+			Set<Entity> collected) {
 		for (Entity child : entity.tree().getChildren()) {
-			recursiveRemove(child, entity, destroy);
+			collectSubtree(child, entity, removed, parents, collected);
+		}
+		removed.add(entity);
+		parents.add(parent);
+		collected.add(entity);
+	}
+
+	/**
+	 * Removes detached Entities from the allEntities Set. Will also call destroy() on the Entities, or put them in the
+	 * EntityPool if there is one.
+	 * 
+	 * @param entities
+	 * @param parents
+	 */
+	private void removeEntities(List<Entity> entities, List<TreeNode> parents) {
+		for (Entity entity : entities) {
+			m_allEntities.remove(entity);
+			if (m_spatial != null)
+				m_spatial.remove(entity);
+			releaseSlot(entity);
+			if (m_pool != null)
+				entity.retire();
+			else
+				entity.destroy();
+		}
+		if (entities.size() == 1) {
+			m_game.entityDisabled(entities.get(0), parents.get(0), this);
+		} else {
+			m_game.entitiesRemoved(entities, parents, this);
+		}
+		for (Entity entity : entities) {
+			entity.setEnabled(false);
+			if (m_pool == null)
+				continue;
+			// the queued events still point at the Entity, so it can't be reused until they are delivered
+			if (m_game.isQueueingEvents())
+				m_retired.add(entity);
+			else
+				m_pool.release(entity);
+		}
+	}
+
+	/**
+	 * Puts the Entities destroyed while the Game was queueing events into the EntityPool.
+	 */
+	protected void releaseRetired() {
+		if (m_pool != null) {
+			for (Entity entity : m_retired)
+				m_pool.release(entity);
 		}
-		m_allEntities.remove(entity);
-		if (destroy)
-			entity.destroy();
-		m_game.entityDisabled(entity, parent, this);
-		entity.setEnabled(false);
+		m_retired.clear();
 	}
 
 	/**
@@ -174,11 +874,23 @@ public class Scene implements TreeNode {
 	 * @param entity
 	 */
 	public void enable(Entity entity) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot enable an Entity during a parallel updateEntity()!";
+		if (isDeferring()) {
+			m_commands.add(CommandBuffer.ENABLE, entity, null, null);
+			return;
+		}
+		applyEnable(entity);
+	}
+
+	private void applyEnable(Entity entity) {
 		if (!entity.isEnabled()) {
 			entity.setEnabled(true);
+			// a dirty Entity is re-indexed by the next world transform pass instead
+			if (m_spatial != null && !entity.isWorldDirty())
+				m_spatial.update(entity, m_worldTransforms);
 			m_game.entityEnabled(entity, entity.tree().getParent(), this);
 			for (Entity child : entity.tree().getChildren())
-				enable(child);
+				applyEnable(child);
 		}
 	}
 
@@ -188,11 +900,22 @@ public class Scene implements TreeNode {
 	 * @param entity
 	 */
 	public void disable(Entity entity) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot disable an Entity during a parallel updateEntity()!";
+		if (isDeferring()) {
+			m_commands.add(CommandBuffer.DISABLE, entity, null, null);
+			return;
+		}
+		applyDisable(entity);
+	}
+
+	private void applyDisable(Entity entity) {
 		if (entity.isEnabled()) {
 			entity.setEnabled(false);
+			if (m_spatial != null)
+				m_spatial.remove(entity);
 			m_game.entityDisabled(entity, entity.tree().getParent(), this);
 			for (Entity child : entity.tree().getChildren())
-				disable(child);
+				applyDisable(child);
 		}
 	}
 
@@ -203,47 +926,122 @@ public class Scene implements TreeNode {
 	 * @param newParent
 	 */
 	public void moveEntity(Entity entity, TreeNode newParent) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot move an Entity during a parallel updateEntity()!";
 		if (entity == null)
 			throw new SceneException("Tried to move a null Entity!");
 		if (newParent == null)
 			throw new SceneException("Tried to move an Entity into a null parent!");
-		if (!m_allEntities.contains(newParent) && !(this == newParent))
+		if (isDeferring()) {
+			m_commands.add(CommandBuffer.MOVE, entity, newParent, null);
+			return;
+		}
+		applyMove(entity, newParent);
+	}
+
+	private void applyMove(Entity entity, TreeNode newParent) {
+		if (!containsNode(newParent))
 			throw new SceneException("Tried to move an Entity to a container not in the Scene!");
 		if (entity.tree().getParent() == newParent)
 			throw new SceneException("Tried to move an Entity into its parent!");
 
 		TreeNode oldParent = entity.tree().getParent();
 
-		Transform2f oldWorldTrans = getWorldTransform(entity);
-		Transform2f oldLocalTrans = entity.transform().getTransform();
+		WorldTransformBuffer world = m_worldTransforms;
+		CTransform trans = entity.transform();
+		List<EntityListener> listeners = entity.getListeners();
 
-		Transform2f newParentWorldTrans;
-		if (newParent == this) {
-			newParentWorldTrans = new Transform2f();
-		} else {
-			newParentWorldTrans = getWorldTransform(newParent);
+		// the Transform2fs are only built when there is a listener to receive them
+		Transform2f oldWorldTrans = null;
+		Transform2f oldLocalTrans = null;
+		if (!listeners.isEmpty()) {
+			oldWorldTrans = getWorldTransform(entity);
+			oldLocalTrans = trans.getTransform();
+		}
+
+		float parentX = 0f;
+		float parentY = 0f;
+		float parentScaleX = 1f;
+		float parentScaleY = 1f;
+		if (newParent != this) {
+			Entity parent = (Entity) newParent;
+			parentX = world.getX(parent);
+			parentY = world.getY(parent);
+			parentScaleX = world.getScaleX(parent);
+			parentScaleY = world.getScaleY(parent);
 		}
 
-		Transform2f newLocalTrans = new Transform2f();
-		newLocalTrans.setTranslation(oldWorldTrans.getTranslation().subtract(newParentWorldTrans.getTranslation()).toVector2f());
-		newLocalTrans.setRotation(newLocalTrans.getRotation() - oldWorldTrans.getRotation());
-		Vector2f oldScale = oldWorldTrans.getScale();
-		Vector2f chainScale = newParentWorldTrans.getScale();
-		newLocalTrans.setScale(new Vector2f(oldScale.getX() / chainScale.getX(), oldScale.getY() / chainScale.getY()));
+		float x = world.getX(entity) - parentX;
+		float y = world.getY(entity) - parentY;
+		float rotation = -world.getRotation(entity);
+		float scaleX = world.getScaleX(entity) / parentScaleX;
+		float scaleY = world.getScaleY(entity) / parentScaleY;
 
 		oldParent.removeChild(entity);
 		newParent.addChild(entity);
 		entity.tree().setParent(newParent);
-		entity.transform().quietSetTransform(newLocalTrans);
-
-		Transform2f newWorldTrans = getWorldTransform(entity);
+		entity.pathChanged();
+		trans.quietSetTransform(x, y, rotation, scaleX, scaleY);
 
-		for (EntityListener listener : entity.getListeners())
-			listener.parentChanged(entity, oldParent, newParent, oldLocalTrans, newLocalTrans, oldWorldTrans, newWorldTrans, this);
+		if (!listeners.isEmpty()) {
+			Transform2f newLocalTrans = new Transform2f(x, y, rotation, scaleX, scaleY);
+			Transform2f newWorldTrans = getWorldTransform(entity);
+			for (EntityListener listener : listeners)
+				listener.parentChanged(entity, oldParent, newParent, oldLocalTrans, newLocalTrans, oldWorldTrans,
+						newWorldTrans, this);
+		}
 		m_game.entityMoved(entity, oldParent, newParent, this);
 	}
 
 	/**
+	 * @return the local transforms of the Entities, by slot
+	 */
+	public LocalTransformBuffer getLocalTransforms() {
+		return m_localTransforms;
+	}
+
+	/**
+	 * @return the world transforms of the Entities, by slot
+	 */
+	public WorldTransformBuffer getWorldTransforms() {
+		return m_worldTransforms;
+	}
+
+	/**
+	 * Called by an Entity when its world transform goes stale. Synchronized because a parallel updateEntity() may move
+	 * its Entity.
+	 * 
+	 * @param entity
+	 */
+	protected void worldTransformDirtied(Entity entity) {
+		synchronized (m_dirtyTransforms) {
+			m_dirtyTransforms.add(entity);
+		}
+	}
+
+	/**
+	 * Recomputes every stale world transform into the WorldTransformBuffer. Each Entity is recomputed at most once,
+	 * after its parent, and Entities which didn't change are not visited. Called by the Game before postUpdate().
+	 */
+	public void updateWorldTransforms() {
+		// entities made dirty during the pass are appended and handled by it too
+		for (int i = 0; i < m_dirtyTransforms.size(); i++) {
+			Entity entity = m_dirtyTransforms.get(i);
+			// destroyed since, or retired and already reused by another Scene sharing the EntityPool
+			if (entity.isDestroyed() || entity.getScene() != this)
+				continue;
+			updateWorldTransform(entity);
+			// the list holds every Entity whose world transform changed, even if it was recomputed early
+			if (m_spatial != null && entity.isEnabled())
+				m_spatial.update(entity, m_worldTransforms);
+		}
+		m_dirtyTransforms.clear();
+	}
+
+	/**
+	 * Returns the transform of the TreeNode in world coordinates. The world transform is cached and only recomputed
+	 * after the Entity or one of its ancestors changes, and the result is a new Transform2f built from it, so changing
+	 * the result doesn't change the Entity. Hot paths should read the WorldTransformBuffer instead.
+	 * 
 	 * @param node
 	 * @return the transform of the Entity in world coordinates.
 	 */
@@ -252,65 +1050,95 @@ public class Scene implements TreeNode {
 			throw new SceneException("Tried to transform a null entity!");
 		if (node instanceof Scene)
 			return new Transform2f();
-		if (((Entity) node).isDestroyed())
+		Entity entity = (Entity) node;
+		if (entity.isDestroyed())
 			throw new SceneException("Cannot calculate world transform of destroyed Entity!");
-		// List of entities in the chain
-		List<Entity> entities = new ArrayList<Entity>();
-		TreeNode parent = node;
-		while (parent != this) {
-			entities.add((Entity) parent);
-			parent = ((Entity) parent).tree().getParent();
-		}
-		Collections.reverse(entities);
-
-		AffineTransform at = new AffineTransform();
-		float totalRot = 0;
-		for (int i = 0; i < entities.size(); i++) {
-			Entity e = entities.get(i);
-			CTransform trans = e.transform();
-			TransformMode mode = trans.getTransformMode();
-
-			if (mode == TransformMode.NONE) {
-				at = new AffineTransform();
-				totalRot = 0;
-			} else if (mode == TransformMode.FIXED_TRANSLATE) {
-				AffineTransform newTrans = new AffineTransform();
-				newTrans.translate(at.getTranslateX(), at.getTranslateY());
-				at = newTrans;
-				totalRot = 0;
-			} else if (mode == TransformMode.FIXED_ROTATE) {
-				at = new AffineTransform();
-				totalRot += trans.getRotation();
-
-				at.translate(trans.getTranslation().getX(), trans.getTranslation().getY());
-				at.rotate(totalRot);
-				at.scale(trans.getScale().getX(), trans.getScale().getY());
-				continue;
-			} else if (mode == TransformMode.RTRANSLATE) {
-				AffineTransform newTrans = new AffineTransform();
-				newTrans.translate(at.getTranslateX(), at.getTranslateY());
-				newTrans.rotate(totalRot);
-				newTrans.translate(trans.getTranslation().getX(), trans.getTranslation().getY());
-				newTrans.rotate(-totalRot);
-				newTrans.rotate(trans.getRotation());
-				totalRot = trans.getRotation();
-				newTrans.scale(trans.getScale().getX(), trans.getScale().getY());
-
-				at = newTrans;
-				continue;
-			}
+		if (entity.getSlot() < 0)
+			throw new SceneException("Cannot calculate world transform of an Entity which hasn't been added yet!");
+
+		updateWorldTransform(entity);
+		WorldTransformBuffer world = m_worldTransforms;
+		return new Transform2f(world.getX(entity), world.getY(entity), world.getRotation(entity),
+				world.getScaleX(entity), world.getScaleY(entity));
+	}
+
+	/**
+	 * Recomputes the cached world transform of a dirty Entity from its parent's, after bringing the parent up to date.
+	 * 
+	 * @param entity
+	 */
+	protected void updateWorldTransform(Entity entity) {
+		if (!entity.isWorldDirty())
+			return;
 
-			at.translate(trans.getTranslation().getX(), trans.getTranslation().getY());
-			at.rotate(trans.getRotation());
-			totalRot += trans.getRotation();
-			at.scale(trans.getScale().getX(), trans.getScale().getY());
+		TreeNode parent = entity.tree().getParent();
+		AffineTransform parentMatrix = IDENTITY;
+		float parentRotation = 0;
+		if (parent instanceof Entity) {
+			Entity parentEntity = (Entity) parent;
+			updateWorldTransform(parentEntity);
+			parentMatrix = parentEntity.getWorldMatrix();
+			parentRotation = parentEntity.getWorldRotation();
 		}
 
-		Vector2f translation = new Vector2f((float) at.getTranslateX(), (float) at.getTranslateY());
-		float rotation = totalRot;
-		Vector2f scale = new Vector2f((float) (at.getScaleX() / Math.cos(rotation)),
-				(float) (at.getScaleY() / Math.cos(rotation)));
-		return new Transform2f(translation, rotation, scale);
+		AffineTransform at = entity.getWorldMatrix();
+		float rotation = applyLocalTransform(at, parentMatrix, parentRotation, entity.transform());
+
+		m_worldTransforms.set(entity.getSlot(), (float) at.getTranslateX(), (float) at.getTranslateY(), rotation,
+				(float) (at.getScaleX() / Math.cos(rotation)), (float) (at.getScaleY() / Math.cos(rotation)));
+		entity.worldTransformUpdated(rotation);
+	}
+
+	/**
+	 * Sets a matrix to the world matrix of an Entity, given the world matrix and accumulated rotation of its parent.
+	 * 
+	 * @param at
+	 *            the matrix to write into
+	 * @param parentMatrix
+	 * @param parentRotation
+	 * @param trans
+	 *            the local transform of the Entity
+	 * @return the accumulated rotation of the Entity
+	 */
+	private static float applyLocalTransform(AffineTransform at, AffineTransform parentMatrix, float parentRotation,
+			CTransform trans) {
+		TransformMode mode = trans.getTransformMode();
+		float x = trans.getX();
+		float y = trans.getY();
+		float scaleX = trans.getScaleX();
+		float scaleY = trans.getScaleY();
+		float rotation = trans.getRotation();
+		float totalRot = parentRotation;
+
+		if (mode == TransformMode.NONE) {
+			at.setToIdentity();
+			totalRot = 0;
+		} else if (mode == TransformMode.FIXED_TRANSLATE) {
+			at.setToTranslation(parentMatrix.getTranslateX(), parentMatrix.getTranslateY());
+			totalRot = 0;
+		} else if (mode == TransformMode.FIXED_ROTATE) {
+			totalRot += rotation;
+			at.setToTranslation(x, y);
+			at.rotate(totalRot);
+			at.scale(scaleX, scaleY);
+			return totalRot;
+		} else if (mode == TransformMode.RTRANSLATE) {
+			at.setToTranslation(parentMatrix.getTranslateX(), parentMatrix.getTranslateY());
+			at.rotate(totalRot);
+			at.translate(x, y);
+			at.rotate(-totalRot);
+			at.rotate(rotation);
+			at.scale(scaleX, scaleY);
+			return rotation;
+		} else {
+			at.setTransform(parentMatrix);
+		}
+
+		at.translate(x, y);
+		at.rotate(rotation);
+		totalRot += rotation;
+		at.scale(scaleX, scaleY);
+		return totalRot;
 	}
 
 	/**
@@ -322,7 +1150,18 @@ public class Scene implements TreeNode {
 	}
 
 	/**
-	 * Finds an Entity in the Scene given by the path - each Entity is separated by a ".".
+	 * @param node
+	 * @return whether the TreeNode is this Scene or an Entity in it
+	 */
+	private boolean containsNode(TreeNode node) {
+		if (node == this)
+			return true;
+		return (node instanceof Entity) && m_allEntities.contains((Entity) node);
+	}
+
+	/**
+	 * Finds an Entity in the Scene given by the path - each Entity is separated by a ".". To look the same path up
+	 * repeatedly, such as every frame, compile it with compilePath() instead.
 	 * 
 	 * Example: "player.camera"
 	 * 
@@ -330,16 +1169,26 @@ public class Scene implements TreeNode {
 	 * @return
 	 */
 	public Entity find(String path) {
-		if (path == null)
-			throw new SceneException("Cannot find Entity with null path!");
-		String[] strings = path.split("\\.");
-		Entity root = this.getRootEntity(strings[0]);
-		Entity found = root;
-		for (int i = 1; i < strings.length; i++) {
-			found = found.tree().getChild(strings[i]);
-		}
+		return new EntityPath(this, path).get();
+	}
 
-		return found;
+	/**
+	 * Compiles a path like the ones find() takes into an EntityPath, which remembers the Entity it resolves to until
+	 * an Entity along the path is renamed, moved or destroyed.
+	 * 
+	 * @param path
+	 * @return the EntityPath
+	 */
+	public EntityPath compilePath(String path) {
+		return new EntityPath(this, path);
+	}
+
+	/**
+	 * @param name
+	 * @return the top-level Entity with the name, or null if there is none
+	 */
+	protected Entity findRootEntity(String name) {
+		return m_rootEntities.get(name);
 	}
 
 	/**
@@ -354,7 +1203,7 @@ public class Scene implements TreeNode {
 	 * 
 	 * @return
 	 */
-	protected List<Entity> directGetAllEntities() {
+	protected EntityList directGetAllEntities() {
 		return m_allEntities;
 	}
 
@@ -364,7 +1213,14 @@ public class Scene implements TreeNode {
 	 * @return
 	 */
 	public List<Entity> getAllEntities() {
-		return new ArrayList<Entity>(m_allEntities);
+		List<Entity> all = new ArrayList<Entity>(m_allEntities.size());
+		int slots = m_allEntities.slots();
+		for (int i = 0; i < slots; i++) {
+			Entity e = m_allEntities.get(i);
+			if (e != null)
+				all.add(e);
+		}
+		return all;
 	}
 
 	/**
@@ -398,20 +1254,125 @@ public class Scene implements TreeNode {
 			throw new SceneException("Cannot filter by null EntityFilter!");
 		List<Entity> filtered = new ArrayList<Entity>();
 
-		for (Entity e : m_allEntities) {
-			if (filter.matches(e))
+		int slots = m_allEntities.slots();
+		for (int i = 0; i < slots; i++) {
+			Entity e = m_allEntities.get(i);
+			if (e != null && filter.matches(e))
 				filtered.add(e);
 		}
 
 		return filtered;
 	}
 
+	/**
+	 * Starts keeping a SpatialGrid of the world bounds of the Entities, so they can be found by position with
+	 * queryRegion(), queryRadius() and queryNearest(). The grid is updated from the Entities which moved whenever the
+	 * world transforms are, so it costs nothing for Entities which stay still. Disabled Entities are left out of it.
+	 * 
+	 * @param cellSize
+	 *            the width and height of a cell, which should be about the size of a typical Entity or query
+	 */
+	public void enableSpatialIndex(float cellSize) {
+		assert ParallelAccess.mayChangeStructure() : "Cannot index the Scene during a parallel updateEntity()!";
+		SpatialGrid spatial = new SpatialGrid(cellSize);
+		updateWorldTransforms();
+		int slots = m_allEntities.slots();
+		for (int i = 0; i < slots; i++) {
+			Entity e = m_allEntities.get(i);
+			if (e != null && e.isEnabled())
+				spatial.update(e, m_worldTransforms);
+		}
+		m_spatial = spatial;
+	}
+
+	/**
+	 * Stops keeping the SpatialGrid.
+	 */
+	public void disableSpatialIndex() {
+		m_spatial = null;
+	}
+
+	/**
+	 * @return the SpatialGrid, or null if the Scene isn't spatially indexed
+	 */
+	public SpatialGrid getSpatialIndex() {
+		return m_spatial;
+	}
+
+	/**
+	 * Brings the SpatialGrid up to date for a query.
+	 */
+	private SpatialGrid spatialIndex() {
+		assert ParallelAccess.mayChangeStructure() : "Cannot query the Scene during a parallel updateEntity()!";
+		if (m_spatial == null)
+			throw new SceneException("The Scene is not spatially indexed! Call enableSpatialIndex() first.");
+		updateWorldTransforms();
+		return m_spatial;
+	}
+
+	/**
+	 * Adds the Entities whose world bounds overlap a box to a collection, without allocating.
+	 * 
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param filter
+	 *            the filter the Entities must match, or null for all
+	 * @param results
+	 *            the collection to add to
+	 * @return the number of Entities added
+	 */
+	public int queryRegion(float minX, float minY, float maxX, float maxY, EntityFilter filter,
+			Collection<? super Entity> results) {
+		if (results == null)
+			throw new SceneException("Cannot query into a null collection!");
+		return spatialIndex().queryRegion(minX, minY, maxX, maxY, filter, results);
+	}
+
+	/**
+	 * Adds the Entities whose world bounds overlap a circle to a collection, without allocating.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param filter
+	 *            the filter the Entities must match, or null for all
+	 * @param results
+	 *            the collection to add to
+	 * @return the number of Entities added
+	 */
+	public int queryRadius(float x, float y, float radius, EntityFilter filter, Collection<? super Entity> results) {
+		if (results == null)
+			throw new SceneException("Cannot query into a null collection!");
+		return spatialIndex().queryRadius(x, y, radius, filter, results);
+	}
+
+	/**
+	 * Adds the Entities whose world positions are nearest a point to a list, nearest first, without allocating.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param count
+	 *            the most Entities to add
+	 * @param filter
+	 *            the filter the Entities must match, or null for all
+	 * @param results
+	 *            the list to add to
+	 * @return the number of Entities added
+	 */
+	public int queryNearest(float x, float y, int count, EntityFilter filter, List<? super Entity> results) {
+		if (results == null)
+			throw new SceneException("Cannot query into a null list!");
+		return spatialIndex().queryNearest(x, y, count, filter, results);
+	}
+
 	/**
 	 * Adds a TOP-LEVEL child to the Scene. This should not be called. Use createEntity(name, scene) instead.
 	 */
 	@Override
 	public void addChild(Entity entity) {
-		if (m_rootEntities.containsValue(entity))
+		if (m_rootEntities.get(entity.getName()) == entity)
 			throw new SceneException("Entity is already in Scene!");
 		if (m_rootEntities.containsKey(entity.getName()))
 			throw new EntityException("No two children with the same name allowed!");
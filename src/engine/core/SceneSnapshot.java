@@ -0,0 +1,678 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import engine.core.CTransform.TransformMode;
+import engine.core.exceptions.SceneException;
+import engine.core.script.XScript;
+
+/**
+ * The simulation state of a Scene, taken with scene.snapshot() and put back with scene.restore(). It holds the Entity
+ * tree, the CTransform, CTags and the primitive and String CScriptData of every Entity, and whatever the Scene's
+ * ComponentCodecs write for the other Components, in one binary buffer.
+ *
+ * Taking a snapshot into an existing SceneSnapshot reuses its buffer, so snapshots can be kept in a ring and taken every
+ * step. If the Scene still has the same Entities when it is restored, their state is written back in place. Otherwise
+ * Entities created since are destroyed, and Entities destroyed since are re-created from the Components and Scripts they
+ * had when they were captured. The state of Scripts themselves is not captured.
+ *
+ * A snapshot can be saved with toByteArray() and read back with fromByteArray(). Restoring one read from bytes matches
+ * the Entities by name, so it needs a Scene with the same Entities, like one loaded from the same level.
+ */
+public class SceneSnapshot {
+	// "PHS1"
+	private static final int MAGIC = 0x50485331;
+	private static final TransformMode[] MODES = TransformMode.values();
+
+	// the types of CScriptData values
+	private static final int INT = 1;
+	private static final int FLOAT = 2;
+	private static final int DOUBLE = 3;
+	private static final int LONG = 4;
+	private static final int BOOLEAN = 5;
+	private static final int STRING = 6;
+	private static final int SHORT = 7;
+	private static final int BYTE = 8;
+	private static final int CHAR = 9;
+
+	private SnapshotBuffer m_buffer;
+	private int m_count;
+	// where the state of the Entities starts, after the tree
+	private int m_statePosition;
+	// the codecs last captured with
+	private ComponentCodec<?>[] m_codecs;
+
+	// the captured Entities by index, and their generation, parent index and name at the time
+	private Entity[] m_entities = new Entity[0];
+	private int[] m_generations = new int[0];
+	private int[] m_parents = new int[0];
+	private String[] m_names = new String[0];
+	// the Components and Scripts each Entity was captured with, to re-create it from; null if read from bytes
+	private Component[][] m_components = new Component[0][];
+	private XScript[][] m_scripts = new XScript[0][];
+
+	// the index of each Entity by its slot, while capturing
+	private int[] m_slotIndex = new int[16];
+	// the enabled state read back for each Entity, while restoring
+	private boolean[] m_enabled = new boolean[0];
+	private boolean[] m_visited = new boolean[0];
+	private String[] m_tags = new String[8];
+	// the script data keys read at each place for the last Entity
+	private String[] m_keys = new String[8];
+	// the script data keys to remove from an Entity
+	private String[] m_stale = new String[8];
+
+	/**
+	 * Initializes an empty SceneSnapshot to take snapshots into.
+	 */
+	public SceneSnapshot() {
+		m_buffer = new SnapshotBuffer(4096);
+	}
+
+	private SceneSnapshot(SnapshotBuffer buffer) {
+		m_buffer = buffer;
+	}
+
+	/**
+	 * Reads back a snapshot saved with toByteArray().
+	 *
+	 * @param bytes
+	 * @return the SceneSnapshot
+	 */
+	public static SceneSnapshot fromByteArray(byte[] bytes) {
+		if (bytes == null)
+			throw new SceneException("Cannot read a snapshot from null bytes!");
+		SceneSnapshot snapshot = new SceneSnapshot(new SnapshotBuffer(bytes));
+		SnapshotBuffer in = snapshot.m_buffer;
+		readCodecNames(in);
+		int count = in.getInt();
+		snapshot.ensureCapacity(count);
+		snapshot.m_count = count;
+		return snapshot;
+	}
+
+	/**
+	 * @return a copy of the bytes of the snapshot
+	 */
+	public byte[] toByteArray() {
+		return m_buffer.toByteArray();
+	}
+
+	/**
+	 * @return the size of the snapshot in bytes
+	 */
+	public int size() {
+		return m_buffer.size();
+	}
+
+	/**
+	 * @return the number of Entities captured
+	 */
+	public int getEntityCount() {
+		return m_count;
+	}
+
+	private static String[] readCodecNames(SnapshotBuffer in) {
+		in.position(0);
+		if (in.getInt() != MAGIC)
+			throw new SceneException("Not a scene snapshot!");
+		String[] names = new String[in.getInt()];
+		for (int i = 0; i < names.length; i++)
+			names[i] = in.getString();
+		return names;
+	}
+
+	private void ensureCapacity(int count) {
+		if (m_entities.length >= count)
+			return;
+		int capacity = Math.max(count, m_entities.length * 2);
+		m_entities = Arrays.copyOf(m_entities, capacity);
+		m_generations = Arrays.copyOf(m_generations, capacity);
+		m_parents = Arrays.copyOf(m_parents, capacity);
+		m_names = Arrays.copyOf(m_names, capacity);
+		m_components = Arrays.copyOf(m_components, capacity);
+		m_scripts = Arrays.copyOf(m_scripts, capacity);
+		m_enabled = new boolean[capacity];
+		m_visited = new boolean[capacity];
+	}
+
+	/**
+	 * Captures the Scene, replacing what was captured before.
+	 *
+	 * @param scene
+	 * @param codecs
+	 *            the codecs of the Scene, whose index is written with each Component
+	 */
+	protected void capture(Scene scene, ComponentCodec<?>[] codecs) {
+		// numbers the Entities so each can refer to its parent
+		EntityList all = scene.directGetAllEntities();
+		int slots = all.slots();
+		int count = 0;
+		for (int i = 0; i < slots; i++) {
+			Entity entity = all.get(i);
+			if (entity == null)
+				continue;
+			int slot = entity.getSlot();
+			if (slot >= m_slotIndex.length)
+				m_slotIndex = Arrays.copyOf(m_slotIndex, Math.max(slot + 1, m_slotIndex.length * 2));
+			m_slotIndex[slot] = count++;
+		}
+
+		SnapshotBuffer out = m_buffer;
+		// the tree usually hasn't changed since the last capture, so only the state needs writing again
+		if (isSameStructure(all, count, codecs)) {
+			out.truncate(m_statePosition);
+		} else {
+			writeStructure(all, count, codecs);
+			m_codecs = codecs;
+		}
+		for (int i = 0; i < count; i++)
+			writeState(m_entities[i], codecs, out);
+	}
+
+	/**
+	 * @return whether the Entities, their parents and names, and the codecs are the ones last captured
+	 */
+	private boolean isSameStructure(EntityList all, int count, ComponentCodec<?>[] codecs) {
+		if (count != m_count || codecs != m_codecs)
+			return false;
+		int slots = all.slots();
+		int index = 0;
+		for (int i = 0; i < slots; i++) {
+			Entity entity = all.get(i);
+			if (entity == null)
+				continue;
+			if (m_entities[index] != entity || m_generations[index] != entity.getGeneration()
+					|| m_names[index] != entity.getName() || m_parents[index] != parentIndex(entity))
+				return false;
+			index++;
+		}
+		return true;
+	}
+
+	private int parentIndex(Entity entity) {
+		TreeNode parent = entity.tree().getParent();
+		return (parent instanceof Entity) ? m_slotIndex[((Entity) parent).getSlot()] : -1;
+	}
+
+	private void writeStructure(EntityList all, int count, ComponentCodec<?>[] codecs) {
+		SnapshotBuffer out = m_buffer;
+		out.clear();
+		out.putInt(MAGIC);
+		out.putInt(codecs.length);
+		for (ComponentCodec<?> codec : codecs)
+			out.putString(codec.getName());
+		ensureCapacity(count);
+		out.putInt(count);
+		int statePosition = out.position();
+		out.putInt(0);
+
+		int slots = all.slots();
+		int index = 0;
+		for (int i = 0; i < slots; i++) {
+			Entity entity = all.get(i);
+			if (entity == null)
+				continue;
+			int parentIndex = parentIndex(entity);
+			out.putInt(parentIndex);
+			out.putString(entity.getName());
+
+			// the Components of an Entity don't change, so they only need collecting once per generation
+			if (m_entities[index] != entity || m_generations[index] != entity.getGeneration()
+					|| m_components[index] == null)
+				collectTemplate(entity, index);
+			m_entities[index] = entity;
+			m_generations[index] = entity.getGeneration();
+			m_parents[index] = parentIndex;
+			m_names[index] = entity.getName();
+			index++;
+		}
+		// lets go of Entities which are no longer captured
+		for (int i = count; i < m_count; i++) {
+			m_entities[i] = null;
+			m_names[i] = null;
+			m_components[i] = null;
+			m_scripts[i] = null;
+		}
+		m_count = count;
+
+		m_statePosition = out.position();
+		out.putInt(statePosition, m_statePosition);
+	}
+
+	private void collectTemplate(Entity entity, int index) {
+		List<Component> components = new ArrayList<Component>();
+		for (Component component : entity.components().all()) {
+			String name = component.getName();
+			if (!name.equals(CTransform.NAME) && !name.equals(CTags.NAME) && !name.equals(CScriptData.NAME))
+				components.add(component);
+		}
+		m_components[index] = components.toArray(new Component[components.size()]);
+		List<XScript> scripts = entity.scripts().getAllScripts();
+		m_scripts[index] = scripts.toArray(new XScript[scripts.size()]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writeState(Entity entity, ComponentCodec<?>[] codecs, SnapshotBuffer out) {
+		out.putBoolean(entity.isEnabled());
+
+		CTransform transform = entity.transform();
+		out.putFloat(transform.getX());
+		out.putFloat(transform.getY());
+		out.putFloat(transform.getRotation());
+		out.putFloat(transform.getScaleX());
+		out.putFloat(transform.getScaleY());
+		TransformMode mode = transform.getTransformMode();
+		out.putByte((mode == null) ? 0 : mode.ordinal() + 1);
+
+		TagList tags = entity.tags().getTags();
+		out.putInt(tags.size());
+		for (int i = 0; i < tags.size(); i++)
+			out.putString(tags.get(i));
+
+		writeScriptData(entity.scriptData().directGetData(), out);
+
+		int blocksPosition = out.position();
+		out.putByte(0);
+		int blocks = 0;
+		ComponentManager components = entity.components();
+		for (int c = 0; c < codecs.length; c++) {
+			ComponentCodec<Component> codec = (ComponentCodec<Component>) codecs[c];
+			if (!components.has(codec.getName()))
+				continue;
+			out.putByte(c);
+			// the length lets a Scene without the codec skip the Component
+			int lengthPosition = out.position();
+			out.putInt(0);
+			codec.write(entity, components.get(codec.getName()), out);
+			out.putInt(lengthPosition, out.position() - lengthPosition - 4);
+			blocks++;
+		}
+		out.putByte(blocksPosition, blocks);
+	}
+
+	/**
+	 * Writes the values which are primitives or Strings; others are left out.
+	 */
+	private static void writeScriptData(Map<String, Object> data, SnapshotBuffer out) {
+		int countPosition = out.position();
+		out.putInt(0);
+		if (data.isEmpty())
+			return;
+
+		int count = 0;
+		for (Map.Entry<String, Object> entry : data.entrySet()) {
+			Object value = entry.getValue();
+			int type = typeOf(value);
+			if (type == 0)
+				continue;
+			out.putString(entry.getKey());
+			out.putByte(type);
+			switch (type) {
+			case INT:
+				out.putInt((Integer) value);
+				break;
+			case FLOAT:
+				out.putFloat((Float) value);
+				break;
+			case DOUBLE:
+				out.putDouble((Double) value);
+				break;
+			case LONG:
+				out.putLong((Long) value);
+				break;
+			case BOOLEAN:
+				out.putBoolean((Boolean) value);
+				break;
+			case STRING:
+				out.putString((String) value);
+				break;
+			case SHORT:
+				out.putShort((Short) value);
+				break;
+			case BYTE:
+				out.putByte((Byte) value);
+				break;
+			case CHAR:
+				out.putShort((Character) value);
+				break;
+			}
+			count++;
+		}
+		out.putInt(countPosition, count);
+	}
+
+	private static int typeOf(Object value) {
+		if (value instanceof Integer)
+			return INT;
+		if (value instanceof Float)
+			return FLOAT;
+		if (value instanceof Double)
+			return DOUBLE;
+		if (value instanceof Long)
+			return LONG;
+		if (value instanceof Boolean)
+			return BOOLEAN;
+		if (value instanceof String)
+			return STRING;
+		if (value instanceof Short)
+			return SHORT;
+		if (value instanceof Byte)
+			return BYTE;
+		if (value instanceof Character)
+			return CHAR;
+		return 0;
+	}
+
+	/**
+	 * Puts the captured state back into the Scene.
+	 *
+	 * @param scene
+	 */
+	protected void restore(Scene scene) {
+		SnapshotBuffer in = m_buffer;
+		String[] codecNames = readCodecNames(in);
+		ComponentCodec<?>[] codecs = new ComponentCodec<?>[codecNames.length];
+		for (int i = 0; i < codecs.length; i++)
+			codecs[i] = scene.getSnapshotCodec(codecNames[i]);
+		int count = in.getInt();
+		int statePosition = in.getInt();
+		int structurePosition = in.position();
+
+		if (!isInPlace(scene, count))
+			restructure(scene, count, structurePosition);
+
+		in.position(statePosition);
+		boolean enabledChanged = false;
+		for (int i = 0; i < count; i++) {
+			if (readState(m_entities[i], i, codecs, in))
+				enabledChanged = true;
+		}
+		if (enabledChanged) {
+			Arrays.fill(m_visited, 0, count, false);
+			for (int i = 0; i < count; i++)
+				restoreEnabled(scene, i);
+		}
+	}
+
+	/**
+	 * @return whether the Scene has exactly the captured Entities, in the same places
+	 */
+	private boolean isInPlace(Scene scene, int count) {
+		if (scene.directGetAllEntities().size() != count)
+			return false;
+		for (int i = 0; i < count; i++) {
+			Entity entity = m_entities[i];
+			if (entity == null || entity.getScene() != scene || entity.getGeneration() != m_generations[i])
+				return false;
+			int parent = m_parents[i];
+			if (entity.tree().getParent() != ((parent < 0) ? scene : m_entities[parent]))
+				return false;
+			if (!entity.getName().equals(m_names[i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Makes the Scene's tree the captured one, finding each captured Entity by name under its parent and re-creating
+	 * the ones which are missing, then destroying the rest.
+	 */
+	private void restructure(Scene scene, int count, int structurePosition) {
+		SnapshotBuffer in = m_buffer;
+		in.position(structurePosition);
+		for (int i = 0; i < count; i++) {
+			m_parents[i] = in.getInt();
+			m_names[i] = in.getString(m_names[i]);
+		}
+
+		Entity[] targets = new Entity[count];
+		Set<Entity> kept = new HashSet<Entity>();
+		for (int i = 0; i < count; i++)
+			kept.add(resolve(scene, i, targets));
+
+		List<Entity> extra = new ArrayList<Entity>();
+		for (Entity entity : scene.getAllEntities()) {
+			TreeNode parent = entity.tree().getParent();
+			// descendants go with the top-most extra Entity
+			if (!kept.contains(entity) && (parent == scene || kept.contains(parent)))
+				extra.add(entity);
+		}
+		if (!extra.isEmpty())
+			scene.destroyEntities(extra);
+
+		for (int i = 0; i < count; i++) {
+			m_entities[i] = targets[i];
+			m_generations[i] = targets[i].getGeneration();
+		}
+	}
+
+	private Entity resolve(Scene scene, int index, Entity[] targets) {
+		if (targets[index] != null)
+			return targets[index];
+
+		int parentIndex = m_parents[index];
+		String name = m_names[index];
+		Entity found;
+		TreeNode parent;
+		if (parentIndex < 0) {
+			parent = scene;
+			found = scene.findRootEntity(name);
+		} else {
+			Entity parentEntity = resolve(scene, parentIndex, targets);
+			parent = parentEntity;
+			found = parentEntity.tree().hasChild(name) ? parentEntity.tree().getChild(name) : null;
+		}
+		if (found == null)
+			found = recreate(scene, index, parent);
+		targets[index] = found;
+		return found;
+	}
+
+	private Entity recreate(Scene scene, int index, TreeNode parent) {
+		Component[] components = m_components[index];
+		if (components == null)
+			throw new SceneException("Cannot re-create Entity " + m_names[index]
+					+ " from a snapshot read from bytes; the Scene must already have it!");
+
+		EntityBuilder builder = new EntityBuilder();
+		for (Component component : components)
+			builder.addComponentBuilder(component);
+		for (XScript script : m_scripts[index])
+			builder.addScript(script);
+		return scene.createEntity(m_names[index], parent, builder);
+	}
+
+	/**
+	 * Reads the state of one Entity.
+	 *
+	 * @return whether the Entity's enabled state differs from the captured one
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean readState(Entity entity, int index, ComponentCodec<?>[] codecs, SnapshotBuffer in) {
+		boolean enabled = in.getBoolean();
+		m_enabled[index] = enabled;
+
+		float x = in.getFloat();
+		float y = in.getFloat();
+		float rotation = in.getFloat();
+		float scaleX = in.getFloat();
+		float scaleY = in.getFloat();
+		int modeIndex = in.getByte();
+		// written only if changed, so Entities which haven't moved keep a clean world transform
+		CTransform transform = entity.transform();
+		if (x != transform.getX() || y != transform.getY() || rotation != transform.getRotation()
+				|| scaleX != transform.getScaleX() || scaleY != transform.getScaleY())
+			transform.quietSetTransform(x, y, rotation, scaleX, scaleY);
+		TransformMode mode = (modeIndex == 0) ? null : MODES[modeIndex - 1];
+		if (mode != transform.getTransformMode())
+			transform.setTransformMode(mode);
+
+		readTags(entity, in);
+		readScriptData(entity, in);
+
+		int blocks = in.getByte();
+		ComponentManager components = entity.components();
+		for (int b = 0; b < blocks; b++) {
+			ComponentCodec<Component> codec = (ComponentCodec<Component>) codecs[in.getByte()];
+			int length = in.getInt();
+			int end = in.position() + length;
+			if (codec != null && components.has(codec.getName()))
+				codec.read(entity, components.get(codec.getName()), in);
+			in.position(end);
+		}
+		return enabled != entity.isEnabled();
+	}
+
+	private void readTags(Entity entity, SnapshotBuffer in) {
+		int count = in.getInt();
+		if (count > m_tags.length)
+			m_tags = new String[Math.max(count, m_tags.length * 2)];
+		TagList tags = entity.tags().getTags();
+		int size = tags.size();
+		boolean same = (count == size);
+		for (int i = 0; i < count; i++) {
+			String expected = (i < size) ? tags.get(i) : null;
+			String tag = in.getString(expected);
+			if (tag != expected)
+				same = false;
+			m_tags[i] = tag;
+		}
+		if (!same)
+			entity.tags().setTags(new TagList(Arrays.copyOf(m_tags, count)));
+		Arrays.fill(m_tags, 0, count, null);
+	}
+
+	private void readScriptData(Entity entity, SnapshotBuffer in) {
+		int count = in.getInt();
+		CScriptData data = entity.scriptData();
+		Map<String, Object> current = data.directGetData();
+		if (count == 0 && current.isEmpty())
+			return;
+		if (count > m_keys.length)
+			m_keys = Arrays.copyOf(m_keys, Math.max(count, m_keys.length * 2));
+
+		// values are compared before boxing, so restoring unchanged data doesn't allocate
+		for (int i = 0; i < count; i++) {
+			// Entities tend to have the same data, so the key is likely the one read at this place last time
+			String identifier = in.getString(m_keys[i]);
+			m_keys[i] = identifier;
+			Object old = current.get(identifier);
+			switch (in.getByte()) {
+			case INT: {
+				int value = in.getInt();
+				if (!(old instanceof Integer) || (Integer) old != value)
+					data.setData(identifier, value);
+				break;
+			}
+			case FLOAT: {
+				float value = in.getFloat();
+				if (!(old instanceof Float) || Float.compare((Float) old, value) != 0)
+					data.setData(identifier, value);
+				break;
+			}
+			case DOUBLE: {
+				double value = in.getDouble();
+				if (!(old instanceof Double) || Double.compare((Double) old, value) != 0)
+					data.setData(identifier, value);
+				break;
+			}
+			case LONG: {
+				long value = in.getLong();
+				if (!(old instanceof Long) || (Long) old != value)
+					data.setData(identifier, value);
+				break;
+			}
+			case BOOLEAN: {
+				boolean value = in.getBoolean();
+				if (!(old instanceof Boolean) || (Boolean) old != value)
+					data.setData(identifier, value);
+				break;
+			}
+			case STRING: {
+				String value = in.getString(old instanceof String ? (String) old : null);
+				if (value != old || !current.containsKey(identifier))
+					data.setData(identifier, value);
+				break;
+			}
+			case SHORT: {
+				short value = in.getShort();
+				if (!(old instanceof Short) || (Short) old != value)
+					data.setData(identifier, value);
+				break;
+			}
+			case BYTE: {
+				byte value = in.getByte();
+				if (!(old instanceof Byte) || (Byte) old != value)
+					data.setData(identifier, value);
+				break;
+			}
+			case CHAR: {
+				char value = (char) in.getShort();
+				if (!(old instanceof Character) || (Character) old != value)
+					data.setData(identifier, value);
+				break;
+			}
+			default:
+				throw new SceneException("Unknown script data type in snapshot for: " + identifier);
+			}
+		}
+		// every key read is now set, so any more are either not captured or were set after the capture
+		if (current.size() > count)
+			removeUncaptured(data, count);
+	}
+
+	/**
+	 * Removes the primitive and String script data which was not in the snapshot, so data set after the capture
+	 * doesn't survive the restore. Other data is left as it is, since it is never captured.
+	 *
+	 * @param count
+	 *            the number of keys read, which are in m_keys
+	 */
+	private void removeUncaptured(CScriptData data, int count) {
+		int stale = 0;
+		for (Map.Entry<String, Object> entry : data.directGetData().entrySet()) {
+			if (typeOf(entry.getValue()) == 0 || isKeyRead(entry.getKey(), count))
+				continue;
+			if (stale == m_stale.length)
+				m_stale = Arrays.copyOf(m_stale, m_stale.length * 2);
+			m_stale[stale++] = entry.getKey();
+		}
+		for (int i = 0; i < stale; i++) {
+			data.removeData(m_stale[i]);
+			m_stale[i] = null;
+		}
+	}
+
+	private boolean isKeyRead(String key, int count) {
+		for (int i = 0; i < count; i++) {
+			if (key.equals(m_keys[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Enables or disables an Entity as captured, after its parent, since that changes the children too.
+	 */
+	private void restoreEnabled(Scene scene, int index) {
+		if (m_visited[index])
+			return;
+		m_visited[index] = true;
+		if (m_parents[index] >= 0)
+			restoreEnabled(scene, m_parents[index]);
+
+		Entity entity = m_entities[index];
+		if (m_enabled[index] != entity.isEnabled()) {
+			if (m_enabled[index])
+				scene.enable(entity);
+			else
+				scene.disable(entity);
+		}
+	}
+}
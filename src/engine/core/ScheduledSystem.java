@@ -0,0 +1,36 @@
+package engine.core;
+
+/**
+ * An EntitySystem which declares the Components it touches, so the Game can run its update() and updateEntity() at the
+ * same time as other EntitySystems which don't touch the same Components. EntitySystems which don't implement this are
+ * run one at a time, in the order they were added.
+ *
+ * Two ScheduledSystems conflict if either writes a Component the other reads or writes. Conflicting systems keep the
+ * order they were added in. Reading world transforms counts as reading CTransform, and anything which changes the
+ * Scene's structure, fires events or calls scripts must be done in postUpdate(), which always runs on the main thread.
+ */
+public interface ScheduledSystem extends EntitySystem {
+	/**
+	 * @return the names of the Components read during update() and updateEntity()
+	 */
+	public String[] getReadComponents();
+
+	/**
+	 * @return the names of the Components written during update() and updateEntity()
+	 */
+	public String[] getWrittenComponents();
+
+	/**
+	 * @return whether update() and updateEntity() must be called on the thread that calls Game.update(), such as for
+	 *         OpenGL calls
+	 */
+	public boolean isMainThreadOnly();
+
+	/**
+	 * Returns whether updateEntity() may be called for many Entities at once from worker threads. It must then follow
+	 * the contract described in ParallelAccess. Ignored if isMainThreadOnly() is true.
+	 * 
+	 * @return whether updateEntity() is safe to call in parallel
+	 */
+	public boolean isEntityUpdateParallel();
+}
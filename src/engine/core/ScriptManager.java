@@ -26,6 +26,16 @@ public class ScriptManager {
 		m_entity = entity;
 	}
 
+	/**
+	 * Drops the Scripts and points the context at the Entity's Scene, which may have changed. Used when a pooled Entity
+	 * is reused.
+	 */
+	protected void reset() {
+		m_scripts.clear();
+		Scene scene = m_entity.getScene();
+		m_context = new XScriptContext(scene.getGame(), scene, m_entity);
+	}
+
 	/**
 	 * Called when the Game starts.
 	 */
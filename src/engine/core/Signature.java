@@ -0,0 +1,160 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * A set of Component and tag ids, stored as a bitset. Entities carry a Signature of everything they have, and
+ * EntityFilters compile their requirements into one, so matching is a few word tests that don't allocate.
+ *
+ * The ids are handed out by the SignatureRegistry.
+ */
+public class Signature {
+	private static final int WORD_BITS = 6;
+
+	private long[] m_words;
+
+	/**
+	 * Initializes an empty Signature.
+	 */
+	public Signature() {
+		m_words = new long[1];
+	}
+
+	/**
+	 * Creates a copy of another Signature.
+	 *
+	 * @param signature
+	 */
+	public Signature(Signature signature) {
+		m_words = signature.m_words.clone();
+	}
+
+	/**
+	 * Adds an id.
+	 *
+	 * @param id
+	 */
+	public void set(int id) {
+		int word = id >>> WORD_BITS;
+		if (word >= m_words.length)
+			m_words = Arrays.copyOf(m_words, Math.max(word + 1, m_words.length * 2));
+		m_words[word] |= 1L << id;
+	}
+
+	/**
+	 * Removes an id.
+	 *
+	 * @param id
+	 */
+	public void clear(int id) {
+		int word = id >>> WORD_BITS;
+		if (word < m_words.length)
+			m_words[word] &= ~(1L << id);
+	}
+
+	/**
+	 * @param id
+	 * @return whether the id is in the Signature
+	 */
+	public boolean get(int id) {
+		int word = id >>> WORD_BITS;
+		return word < m_words.length && (m_words[word] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Removes all the ids.
+	 */
+	public void clearAll() {
+		Arrays.fill(m_words, 0L);
+	}
+
+	/**
+	 * Replaces the ids of this Signature with the ids of another.
+	 *
+	 * @param signature
+	 */
+	public void copy(Signature signature) {
+		long[] other = signature.m_words;
+		if (m_words.length < other.length)
+			m_words = new long[other.length];
+		System.arraycopy(other, 0, m_words, 0, other.length);
+		Arrays.fill(m_words, other.length, m_words.length, 0L);
+	}
+
+	/**
+	 * Adds all the ids of another Signature.
+	 *
+	 * @param signature
+	 */
+	public void or(Signature signature) {
+		long[] other = signature.m_words;
+		if (m_words.length < other.length)
+			m_words = Arrays.copyOf(m_words, other.length);
+		for (int i = 0; i < other.length; i++)
+			m_words[i] |= other[i];
+	}
+
+	/**
+	 * @param signature
+	 * @return whether this Signature has every id of the other Signature
+	 */
+	public boolean containsAll(Signature signature) {
+		long[] other = signature.m_words;
+		for (int i = 0; i < other.length; i++) {
+			long required = other[i];
+			if (required == 0)
+				continue;
+			if (i >= m_words.length || (m_words[i] & required) != required)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param signature
+	 * @return whether the two Signatures share any id
+	 */
+	public boolean intersects(Signature signature) {
+		long[] other = signature.m_words;
+		int length = Math.min(m_words.length, other.length);
+		for (int i = 0; i < length; i++) {
+			if ((m_words[i] & other[i]) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the Signature has no ids
+	 */
+	public boolean isEmpty() {
+		for (long word : m_words) {
+			if (word != 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (!(object instanceof Signature))
+			return false;
+		long[] other = ((Signature) object).m_words;
+		int length = Math.max(m_words.length, other.length);
+		for (int i = 0; i < length; i++) {
+			long a = i < m_words.length ? m_words[i] : 0L;
+			long b = i < other.length ? other[i] : 0L;
+			if (a != b)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int last = m_words.length - 1;
+		while (last >= 0 && m_words[last] == 0)
+			last--;
+		return Arrays.hashCode(Arrays.copyOf(m_words, last + 1));
+	}
+}
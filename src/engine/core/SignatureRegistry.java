@@ -0,0 +1,57 @@
+package engine.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the Signature ids for Component names and tags. Component names and tags are kept apart, so a tag called
+ * "body" is not the "body" Component. Ids are never taken back, and the registry can be shared between threads.
+ */
+public class SignatureRegistry {
+	private static final ConcurrentHashMap<String, Integer> s_components = new ConcurrentHashMap<String, Integer>();
+	private static final ConcurrentHashMap<String, Integer> s_tags = new ConcurrentHashMap<String, Integer>();
+	private static final AtomicInteger s_next = new AtomicInteger();
+
+	private SignatureRegistry() {
+
+	}
+
+	/**
+	 * @param name
+	 * @return the id for the Component name
+	 */
+	public static int componentId(String name) {
+		return id(s_components, name);
+	}
+
+	/**
+	 * @param tag
+	 * @return the id for the tag
+	 */
+	public static int tagId(String tag) {
+		return id(s_tags, tag);
+	}
+
+	/**
+	 * Looks up a tag without registering it.
+	 *
+	 * @param tag
+	 * @return the id for the tag, or -1 if the tag has never been registered
+	 */
+	public static int findTagId(String tag) {
+		if (tag == null)
+			return -1;
+		Integer id = s_tags.get(tag);
+		return (id == null) ? -1 : id;
+	}
+
+	private static int id(ConcurrentHashMap<String, Integer> ids, String key) {
+		Integer id = ids.get(key);
+		if (id != null)
+			return id;
+
+		Integer created = s_next.getAndIncrement();
+		id = ids.putIfAbsent(key, created);
+		return (id == null) ? created : id;
+	}
+}
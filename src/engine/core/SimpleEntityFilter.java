@@ -1,24 +1,38 @@
 package engine.core;
 
-import java.util.Arrays;
-import java.util.List;
-
 import engine.core.exceptions.EntityException;
 
 /**
- * Returns true if the Entity has all of the required Components, fields, and tags.
+ * Returns true if the Entity has all of the required Components, fields, and tags. The requirements are compiled into
+ * a Signature, so matching only tests the Entity's Signature.
  */
 public class SimpleEntityFilter implements EntityFilter {
-	private List<String> m_requiredComponents;
-	private TagList m_requiredTags;
+	private Signature m_signature;
 	private boolean m_topLevelOnly;
 
 	public SimpleEntityFilter(String[] requiredComponents, String[] requiredTags, boolean topLevelOnly) {
-		m_requiredComponents = Arrays.asList(requiredComponents);
-		m_requiredTags = new TagList(requiredTags);
+		m_signature = new Signature();
+		for (String component : requiredComponents)
+			m_signature.set(SignatureRegistry.componentId(component));
+		for (String tag : requiredTags)
+			m_signature.set(SignatureRegistry.tagId(tag));
 		m_topLevelOnly = topLevelOnly;
 	}
 
+	/**
+	 * @return the ids of the required Components and tags - do not modify this
+	 */
+	public Signature getSignature() {
+		return m_signature;
+	}
+
+	/**
+	 * @return whether only Entities directly under the Scene match
+	 */
+	public boolean isTopLevelOnly() {
+		return m_topLevelOnly;
+	}
+
 	@Override
 	public boolean matches(Entity entity) {
 		if (entity == null)
@@ -29,11 +43,6 @@ public class SimpleEntityFilter implements EntityFilter {
 				return false;
 		}
 
-		TagList tags = entity.tags().getTags();
-		List<String> components = entity.components().allNames();
-		if (tags.containsAll(m_requiredTags) && components.containsAll(m_requiredComponents)) {
-			return true;
-		}
-		return false;
+		return entity.getSignature().containsAll(m_signature);
 	}
 }
@@ -0,0 +1,267 @@
+package engine.core;
+
+import java.util.Arrays;
+
+import engine.core.exceptions.SceneException;
+
+/**
+ * A growable byte buffer which a SceneSnapshot and its ComponentCodecs write their state to and read it back from.
+ * Values are written big-endian, and floats and doubles bit for bit, so a restored value is exactly the captured one.
+ */
+public class SnapshotBuffer {
+	private byte[] m_bytes;
+	// where the next value is written to or read from
+	private int m_position;
+	// the number of bytes written
+	private int m_size;
+
+	/**
+	 * Initializes an empty SnapshotBuffer.
+	 *
+	 * @param capacity
+	 *            the number of bytes to start with
+	 */
+	public SnapshotBuffer(int capacity) {
+		m_bytes = new byte[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Initializes a SnapshotBuffer to read bytes from.
+	 *
+	 * @param bytes
+	 */
+	protected SnapshotBuffer(byte[] bytes) {
+		m_bytes = bytes;
+		m_size = bytes.length;
+	}
+
+	/**
+	 * Empties the buffer, keeping its capacity.
+	 */
+	protected void clear() {
+		m_position = 0;
+		m_size = 0;
+	}
+
+	/**
+	 * Drops the bytes after a position, and moves there to write the rest again.
+	 *
+	 * @param size
+	 */
+	protected void truncate(int size) {
+		if (size < 0 || size > m_size)
+			throw new SceneException("Snapshot size out of range: " + size);
+		m_position = size;
+		m_size = size;
+	}
+
+	/**
+	 * @return the number of bytes written
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * @return where the next value is written to or read from
+	 */
+	public int position() {
+		return m_position;
+	}
+
+	/**
+	 * Moves to where the next value is written to or read from.
+	 *
+	 * @param position
+	 */
+	public void position(int position) {
+		if (position < 0 || position > m_size)
+			throw new SceneException("Snapshot position out of range: " + position);
+		m_position = position;
+	}
+
+	/**
+	 * @return a copy of the bytes written
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(m_bytes, m_size);
+	}
+
+	private void ensureWrite(int count) {
+		int end = m_position + count;
+		if (end > m_bytes.length)
+			m_bytes = Arrays.copyOf(m_bytes, Math.max(end, m_bytes.length * 2));
+		if (end > m_size)
+			m_size = end;
+	}
+
+	private void ensureRead(int count) {
+		if (m_position + count > m_size)
+			throw new SceneException("Read past the end of the snapshot!");
+	}
+
+	public void putByte(int value) {
+		ensureWrite(1);
+		m_bytes[m_position++] = (byte) value;
+	}
+
+	/**
+	 * Overwrites a byte written earlier, without moving the position.
+	 *
+	 * @param at
+	 * @param value
+	 */
+	public void putByte(int at, int value) {
+		m_bytes[at] = (byte) value;
+	}
+
+	public void putBoolean(boolean value) {
+		putByte(value ? 1 : 0);
+	}
+
+	public void putShort(int value) {
+		ensureWrite(2);
+		byte[] b = m_bytes;
+		int p = m_position;
+		b[p] = (byte) (value >>> 8);
+		b[p + 1] = (byte) value;
+		m_position = p + 2;
+	}
+
+	public void putInt(int value) {
+		ensureWrite(4);
+		writeInt(m_position, value);
+		m_position += 4;
+	}
+
+	/**
+	 * Overwrites an int written earlier, without moving the position.
+	 *
+	 * @param at
+	 * @param value
+	 */
+	public void putInt(int at, int value) {
+		writeInt(at, value);
+	}
+
+	private void writeInt(int p, int value) {
+		byte[] b = m_bytes;
+		b[p] = (byte) (value >>> 24);
+		b[p + 1] = (byte) (value >>> 16);
+		b[p + 2] = (byte) (value >>> 8);
+		b[p + 3] = (byte) value;
+	}
+
+	public void putLong(long value) {
+		putInt((int) (value >>> 32));
+		putInt((int) value);
+	}
+
+	public void putFloat(float value) {
+		ensureWrite(4);
+		writeInt(m_position, Float.floatToRawIntBits(value));
+		m_position += 4;
+	}
+
+	public void putDouble(double value) {
+		putLong(Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Writes a String, which may be null.
+	 *
+	 * @param value
+	 */
+	public void putString(String value) {
+		if (value == null) {
+			putInt(-1);
+			return;
+		}
+		int length = value.length();
+		ensureWrite(4 + length * 2);
+		writeInt(m_position, length);
+		byte[] b = m_bytes;
+		int p = m_position + 4;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			b[p++] = (byte) (c >>> 8);
+			b[p++] = (byte) c;
+		}
+		m_position = p;
+	}
+
+	public byte getByte() {
+		ensureRead(1);
+		return m_bytes[m_position++];
+	}
+
+	public boolean getBoolean() {
+		return getByte() != 0;
+	}
+
+	public short getShort() {
+		ensureRead(2);
+		byte[] b = m_bytes;
+		int p = m_position;
+		m_position = p + 2;
+		return (short) ((b[p] << 8) | (b[p + 1] & 0xff));
+	}
+
+	public int getInt() {
+		ensureRead(4);
+		byte[] b = m_bytes;
+		int p = m_position;
+		m_position = p + 4;
+		return (b[p] << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8) | (b[p + 3] & 0xff);
+	}
+
+	public long getLong() {
+		long high = getInt();
+		return (high << 32) | (getInt() & 0xffffffffL);
+	}
+
+	public float getFloat() {
+		return Float.intBitsToFloat(getInt());
+	}
+
+	public double getDouble() {
+		return Double.longBitsToDouble(getLong());
+	}
+
+	/**
+	 * @return the next String, which may be null
+	 */
+	public String getString() {
+		return getString(null);
+	}
+
+	/**
+	 * Reads a String, returning the expected one instead of a copy if they are equal, so reading back unchanged
+	 * Strings doesn't allocate.
+	 *
+	 * @param expected
+	 *            the String the next one is likely to be, or null
+	 * @return the next String, which may be null
+	 */
+	public String getString(String expected) {
+		int length = getInt();
+		if (length < 0)
+			return null;
+		ensureRead(length * 2);
+		byte[] b = m_bytes;
+		int p = m_position;
+		m_position = p + length * 2;
+
+		if (expected != null && expected.length() == length) {
+			boolean same = true;
+			for (int i = 0; i < length && same; i++)
+				same = expected.charAt(i) == (char) ((b[p + i * 2] << 8) | (b[p + i * 2 + 1] & 0xff));
+			if (same)
+				return expected;
+		}
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = (char) ((b[p + i * 2] << 8) | (b[p + i * 2 + 1] & 0xff));
+		return new String(chars);
+	}
+}
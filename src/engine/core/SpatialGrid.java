@@ -0,0 +1,519 @@
+package engine.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import engine.core.exceptions.SceneException;
+
+/**
+ * A uniform grid over the world bounds of the Entities of a Scene, so region, radius and nearest queries only look at
+ * the Entities near the query. The bounds of an Entity are its unit square moved, rotated and scaled by its world
+ * transform, which is the square CRender draws.
+ *
+ * The grid is loose: each Entity is kept in the one cell holding its center, and a query looks one cell further out in
+ * each direction. That works because Entities bigger than a cell are kept in a separate list which every query checks.
+ * The cells are hashed, so the world has no limits and empty cells cost nothing once the table is rebuilt.
+ *
+ * The Scene keeps the grid up to date from the Entities whose world transform changed, and removes destroyed Entities.
+ * Queries don't allocate: the results go into collections supplied by the caller.
+ */
+public class SpatialGrid {
+	private static final int NONE = -1;
+	private static final int LARGE = -2;
+	private static final int INITIAL_SLOTS = 64;
+	private static final int INITIAL_CELLS = 64;
+
+	private float m_cellSize;
+	private float m_inverseSize;
+
+	// the indexed Entities and their bounds, by slot
+	private Entity[] m_entities;
+	private float[] m_minX;
+	private float[] m_minY;
+	private float[] m_maxX;
+	private float[] m_maxY;
+	private float[] m_centerX;
+	private float[] m_centerY;
+	// the index of the cell the slot is in, NONE or LARGE, and the links of the cell's list
+	private int[] m_cell;
+	private int[] m_next;
+	private int[] m_prev;
+	private int m_size;
+
+	// an open addressing table from cell coordinates to the head of the cell's list
+	private long[] m_keys;
+	private int[] m_heads;
+	private int[] m_counts;
+	private boolean[] m_used;
+	private int m_usedCells;
+	private int m_occupiedCells;
+
+	// the Entities bigger than a cell
+	private int m_largeHead = NONE;
+	private int m_largeCount;
+
+	// the best candidates of a nearest query, kept between queries so they don't allocate
+	private Entity[] m_best = new Entity[0];
+	private float[] m_bestDistance = new float[0];
+	private int m_bestCount;
+
+	/**
+	 * Initializes an empty SpatialGrid. The cells should be about the size of a typical Entity, or of a typical query.
+	 *
+	 * @param cellSize
+	 *            the width and height of a cell in world units
+	 */
+	public SpatialGrid(float cellSize) {
+		if (!(cellSize > 0) || Float.isInfinite(cellSize))
+			throw new SceneException("The cell size of a SpatialGrid must be positive!");
+		m_cellSize = cellSize;
+		m_inverseSize = 1f / cellSize;
+
+		m_entities = new Entity[INITIAL_SLOTS];
+		m_minX = new float[INITIAL_SLOTS];
+		m_minY = new float[INITIAL_SLOTS];
+		m_maxX = new float[INITIAL_SLOTS];
+		m_maxY = new float[INITIAL_SLOTS];
+		m_centerX = new float[INITIAL_SLOTS];
+		m_centerY = new float[INITIAL_SLOTS];
+		m_cell = new int[INITIAL_SLOTS];
+		m_next = new int[INITIAL_SLOTS];
+		m_prev = new int[INITIAL_SLOTS];
+		Arrays.fill(m_cell, NONE);
+
+		allocateCells(INITIAL_CELLS);
+	}
+
+	/**
+	 * @return the width and height of a cell in world units
+	 */
+	public float getCellSize() {
+		return m_cellSize;
+	}
+
+	/**
+	 * @return the number of indexed Entities
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	private void ensureCapacity(int slot) {
+		if (slot < m_entities.length)
+			return;
+		int capacity = Math.max(slot + 1, m_entities.length * 2);
+		int old = m_entities.length;
+		m_entities = Arrays.copyOf(m_entities, capacity);
+		m_minX = Arrays.copyOf(m_minX, capacity);
+		m_minY = Arrays.copyOf(m_minY, capacity);
+		m_maxX = Arrays.copyOf(m_maxX, capacity);
+		m_maxY = Arrays.copyOf(m_maxY, capacity);
+		m_centerX = Arrays.copyOf(m_centerX, capacity);
+		m_centerY = Arrays.copyOf(m_centerY, capacity);
+		m_cell = Arrays.copyOf(m_cell, capacity);
+		m_next = Arrays.copyOf(m_next, capacity);
+		m_prev = Arrays.copyOf(m_prev, capacity);
+		Arrays.fill(m_cell, old, capacity, NONE);
+	}
+
+	/**
+	 * Adds an Entity or moves it to its current world bounds.
+	 *
+	 * @param entity
+	 * @param world
+	 *            the world transforms of the Entity's Scene
+	 */
+	protected void update(Entity entity, WorldTransformBuffer world) {
+		int slot = entity.getSlot();
+		ensureCapacity(slot);
+
+		float x = world.getX(entity);
+		float y = world.getY(entity);
+		float rotation = world.getRotation(entity);
+		float cos = Math.abs((float) Math.cos(rotation));
+		float sin = Math.abs((float) Math.sin(rotation));
+		float scaleX = Math.abs(world.getScaleX(entity));
+		float scaleY = Math.abs(world.getScaleY(entity));
+		float halfWidth = 0.5f * (scaleX * cos + scaleY * sin);
+		float halfHeight = 0.5f * (scaleX * sin + scaleY * cos);
+
+		m_minX[slot] = x - halfWidth;
+		m_minY[slot] = y - halfHeight;
+		m_maxX[slot] = x + halfWidth;
+		m_maxY[slot] = y + halfHeight;
+		m_centerX[slot] = x;
+		m_centerY[slot] = y;
+
+		int cell;
+		if (halfWidth > m_cellSize || halfHeight > m_cellSize) {
+			cell = LARGE;
+		} else {
+			long key = key(cellOf(x), cellOf(y));
+			int current = m_cell[slot];
+			if (current >= 0 && m_keys[current] == key)
+				return;
+			cell = cellFor(key);
+		}
+
+		if (m_cell[slot] == cell)
+			return;
+		if (m_cell[slot] == NONE) {
+			m_entities[slot] = entity;
+			m_size++;
+		} else {
+			unlink(slot);
+		}
+		link(slot, cell);
+	}
+
+	/**
+	 * Removes an Entity, if it is indexed.
+	 *
+	 * @param entity
+	 */
+	protected void remove(Entity entity) {
+		int slot = entity.getSlot();
+		if (slot < 0 || slot >= m_entities.length || m_entities[slot] != entity)
+			return;
+		unlink(slot);
+		m_cell[slot] = NONE;
+		m_entities[slot] = null;
+		m_size--;
+	}
+
+	private void link(int slot, int cell) {
+		m_cell[slot] = cell;
+		m_prev[slot] = NONE;
+		if (cell == LARGE) {
+			m_next[slot] = m_largeHead;
+			if (m_largeHead != NONE)
+				m_prev[m_largeHead] = slot;
+			m_largeHead = slot;
+			m_largeCount++;
+		} else {
+			m_next[slot] = m_heads[cell];
+			if (m_heads[cell] != NONE)
+				m_prev[m_heads[cell]] = slot;
+			m_heads[cell] = slot;
+			if (m_counts[cell]++ == 0)
+				m_occupiedCells++;
+		}
+	}
+
+	private void unlink(int slot) {
+		int cell = m_cell[slot];
+		int next = m_next[slot];
+		int prev = m_prev[slot];
+		if (next != NONE)
+			m_prev[next] = prev;
+		if (cell == LARGE) {
+			if (prev != NONE)
+				m_next[prev] = next;
+			else
+				m_largeHead = next;
+			m_largeCount--;
+		} else {
+			if (prev != NONE)
+				m_next[prev] = next;
+			else
+				m_heads[cell] = next;
+			if (--m_counts[cell] == 0)
+				m_occupiedCells--;
+		}
+	}
+
+	private int cellOf(float coordinate) {
+		return (int) Math.floor(coordinate * m_inverseSize);
+	}
+
+	private static long key(int cellX, int cellY) {
+		return ((long) cellX << 32) | (cellY & 0xffffffffL);
+	}
+
+	private static int keyX(long key) {
+		return (int) (key >> 32);
+	}
+
+	private static int keyY(long key) {
+		return (int) key;
+	}
+
+	private int hash(long key) {
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32)) & (m_keys.length - 1);
+	}
+
+	private void allocateCells(int capacity) {
+		m_keys = new long[capacity];
+		m_heads = new int[capacity];
+		m_counts = new int[capacity];
+		m_used = new boolean[capacity];
+		m_usedCells = 0;
+		m_occupiedCells = 0;
+	}
+
+	/**
+	 * @param key
+	 * @return the index of the cell, or NONE if it has never been used
+	 */
+	private int findCell(long key) {
+		int mask = m_keys.length - 1;
+		for (int i = hash(key);; i = (i + 1) & mask) {
+			if (!m_used[i])
+				return NONE;
+			if (m_keys[i] == key)
+				return i;
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return the index of the cell, which is added if it has never been used
+	 */
+	private int cellFor(long key) {
+		int cell = findCell(key);
+		if (cell != NONE)
+			return cell;
+		if ((m_usedCells + 1) * 2 > m_keys.length)
+			rebuildCells();
+
+		int mask = m_keys.length - 1;
+		int i = hash(key);
+		while (m_used[i])
+			i = (i + 1) & mask;
+		m_used[i] = true;
+		m_keys[i] = key;
+		m_heads[i] = NONE;
+		m_counts[i] = 0;
+		m_usedCells++;
+		return i;
+	}
+
+	/**
+	 * Rehashes the occupied cells into a table sized for them, dropping the empty ones.
+	 */
+	private void rebuildCells() {
+		long[] keys = m_keys;
+		int[] heads = m_heads;
+		int[] counts = m_counts;
+		int capacity = INITIAL_CELLS;
+		while (capacity < m_occupiedCells * 4)
+			capacity *= 2;
+		allocateCells(capacity);
+
+		int mask = capacity - 1;
+		for (int old = 0; old < keys.length; old++) {
+			if (counts[old] == 0)
+				continue;
+			int i = hash(keys[old]);
+			while (m_used[i])
+				i = (i + 1) & mask;
+			m_used[i] = true;
+			m_keys[i] = keys[old];
+			m_heads[i] = heads[old];
+			m_counts[i] = counts[old];
+			m_usedCells++;
+			m_occupiedCells++;
+			for (int slot = heads[old]; slot != NONE; slot = m_next[slot])
+				m_cell[slot] = i;
+		}
+	}
+
+	/**
+	 * Adds the Entities whose bounds overlap a box, or a circle if the radius is not negative.
+	 */
+	private int query(float minX, float minY, float maxX, float maxY, float circleX, float circleY, float radius,
+			EntityFilter filter, Collection<? super Entity> results) {
+		int found = 0;
+		for (int slot = m_largeHead; slot != NONE; slot = m_next[slot])
+			found += test(slot, minX, minY, maxX, maxY, circleX, circleY, radius, filter, results);
+
+		// Entities are at most a cell bigger than their center's cell, so one more cell around the box is enough
+		int cellX0 = cellOf(minX - m_cellSize);
+		int cellY0 = cellOf(minY - m_cellSize);
+		int cellX1 = cellOf(maxX + m_cellSize);
+		int cellY1 = cellOf(maxY + m_cellSize);
+		double cells = ((double) cellX1 - cellX0 + 1) * ((double) cellY1 - cellY0 + 1);
+
+		if (cells > m_keys.length) {
+			// a query covering more cells than the table has is faster by walking the table
+			for (int cell = 0; cell < m_keys.length; cell++) {
+				if (m_counts[cell] == 0)
+					continue;
+				for (int slot = m_heads[cell]; slot != NONE; slot = m_next[slot])
+					found += test(slot, minX, minY, maxX, maxY, circleX, circleY, radius, filter, results);
+			}
+			return found;
+		}
+
+		for (int cellX = cellX0; cellX <= cellX1; cellX++) {
+			for (int cellY = cellY0; cellY <= cellY1; cellY++) {
+				int cell = findCell(key(cellX, cellY));
+				if (cell == NONE)
+					continue;
+				for (int slot = m_heads[cell]; slot != NONE; slot = m_next[slot])
+					found += test(slot, minX, minY, maxX, maxY, circleX, circleY, radius, filter, results);
+			}
+		}
+		return found;
+	}
+
+	private int test(int slot, float minX, float minY, float maxX, float maxY, float circleX, float circleY,
+			float radius, EntityFilter filter, Collection<? super Entity> results) {
+		if (m_maxX[slot] < minX || m_minX[slot] > maxX || m_maxY[slot] < minY || m_minY[slot] > maxY)
+			return 0;
+		if (radius >= 0) {
+			float dx = Math.max(Math.max(m_minX[slot] - circleX, circleX - m_maxX[slot]), 0f);
+			float dy = Math.max(Math.max(m_minY[slot] - circleY, circleY - m_maxY[slot]), 0f);
+			if (dx * dx + dy * dy > radius * radius)
+				return 0;
+		}
+		Entity entity = m_entities[slot];
+		if (filter != null && !filter.matches(entity))
+			return 0;
+		results.add(entity);
+		return 1;
+	}
+
+	/**
+	 * Adds the Entities whose bounds overlap a box to a collection.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param filter
+	 *            the filter the Entities must match, or null for all
+	 * @param results
+	 * @return the number of Entities added
+	 */
+	protected int queryRegion(float minX, float minY, float maxX, float maxY, EntityFilter filter,
+			Collection<? super Entity> results) {
+		return query(minX, minY, maxX, maxY, 0f, 0f, -1f, filter, results);
+	}
+
+	/**
+	 * Adds the Entities whose bounds overlap a circle to a collection.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param filter
+	 *            the filter the Entities must match, or null for all
+	 * @param results
+	 * @return the number of Entities added
+	 */
+	protected int queryRadius(float x, float y, float radius, EntityFilter filter, Collection<? super Entity> results) {
+		if (radius < 0)
+			throw new SceneException("Cannot query a negative radius!");
+		return query(x - radius, y - radius, x + radius, y + radius, x, y, radius, filter, results);
+	}
+
+	/**
+	 * Adds the Entities whose centers are nearest a point to a list, nearest first. The cells are searched in rings
+	 * around the point until no unsearched cell can hold anything nearer.
+	 *
+	 * @param x
+	 * @param y
+	 * @param count
+	 *            the most Entities to add
+	 * @param filter
+	 *            the filter the Entities must match, or null for all
+	 * @param results
+	 * @return the number of Entities added
+	 */
+	protected int queryNearest(float x, float y, int count, EntityFilter filter, List<? super Entity> results) {
+		if (count < 1)
+			throw new SceneException("Must query at least one nearest Entity!");
+		if (m_best.length < count) {
+			m_best = new Entity[count];
+			m_bestDistance = new float[count];
+		}
+		m_bestCount = 0;
+
+		for (int slot = m_largeHead; slot != NONE; slot = m_next[slot])
+			consider(slot, x, y, count, filter);
+
+		int centerX = cellOf(x);
+		int centerY = cellOf(y);
+		int remaining = m_size - m_largeCount;
+		for (int ring = 0; remaining > 0; ring++) {
+			double side = 2.0 * ring + 1;
+			if (side * side > m_keys.length) {
+				// the rings now cover more cells than the table has, so walk the cells not searched yet
+				for (int cell = 0; cell < m_keys.length; cell++) {
+					if (m_counts[cell] == 0)
+						continue;
+					int distance = Math.max(Math.abs(keyX(m_keys[cell]) - centerX), Math.abs(keyY(m_keys[cell]) - centerY));
+					if (distance < ring)
+						continue;
+					for (int slot = m_heads[cell]; slot != NONE; slot = m_next[slot])
+						consider(slot, x, y, count, filter);
+				}
+				break;
+			}
+
+			if (ring == 0) {
+				remaining -= searchCell(centerX, centerY, x, y, count, filter);
+			} else {
+				for (int i = -ring; i <= ring; i++) {
+					remaining -= searchCell(centerX + i, centerY - ring, x, y, count, filter);
+					remaining -= searchCell(centerX + i, centerY + ring, x, y, count, filter);
+				}
+				for (int i = -ring + 1; i <= ring - 1; i++) {
+					remaining -= searchCell(centerX - ring, centerY + i, x, y, count, filter);
+					remaining -= searchCell(centerX + ring, centerY + i, x, y, count, filter);
+				}
+			}
+
+			// everything outside the rings searched so far is at least this far from the point
+			float reach = ring * m_cellSize;
+			if (m_bestCount == count && m_bestDistance[count - 1] <= reach * reach)
+				break;
+		}
+
+		int found = m_bestCount;
+		for (int i = 0; i < found; i++) {
+			results.add(m_best[i]);
+			m_best[i] = null;
+		}
+		m_bestCount = 0;
+		return found;
+	}
+
+	/**
+	 * @return the number of Entities in the cell
+	 */
+	private int searchCell(int cellX, int cellY, float x, float y, int count, EntityFilter filter) {
+		int cell = findCell(key(cellX, cellY));
+		if (cell == NONE)
+			return 0;
+		for (int slot = m_heads[cell]; slot != NONE; slot = m_next[slot])
+			consider(slot, x, y, count, filter);
+		return m_counts[cell];
+	}
+
+	/**
+	 * Inserts an Entity into the sorted best candidates if it is near enough.
+	 */
+	private void consider(int slot, float x, float y, int count, EntityFilter filter) {
+		float dx = m_centerX[slot] - x;
+		float dy = m_centerY[slot] - y;
+		float distance = dx * dx + dy * dy;
+		if (m_bestCount == count && distance >= m_bestDistance[count - 1])
+			return;
+		Entity entity = m_entities[slot];
+		if (filter != null && !filter.matches(entity))
+			return;
+
+		int i = (m_bestCount < count) ? m_bestCount++ : count - 1;
+		while (i > 0 && m_bestDistance[i - 1] > distance) {
+			m_best[i] = m_best[i - 1];
+			m_bestDistance[i] = m_bestDistance[i - 1];
+			i--;
+		}
+		m_best[i] = entity;
+		m_bestDistance[i] = distance;
+	}
+}
@@ -0,0 +1,161 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a phase of the EntitySystems, such as update(), on a ForkJoinPool. The EntitySystems are split into waves from
+ * the Components they declare as ScheduledSystems: a system goes in the wave after the last earlier system it
+ * conflicts with, so the systems in a wave can run at the same time and conflicting systems keep their order.
+ * EntitySystems which aren't ScheduledSystems conflict with everything, and systems which must stay on the main thread
+ * conflict with each other.
+ */
+public class SystemScheduler {
+	/**
+	 * Something done to each EntitySystem.
+	 */
+	public interface Phase {
+		/**
+		 * @param system
+		 */
+		public void run(EntitySystem system);
+	}
+
+	private ForkJoinPool m_pool;
+	private List<List<EntitySystem>> m_waves;
+
+	/**
+	 * Initializes a SystemScheduler with no EntitySystems.
+	 *
+	 * @param pool
+	 *            the pool to run systems on, or null to run everything on the calling thread
+	 */
+	public SystemScheduler(ForkJoinPool pool) {
+		m_pool = pool;
+		m_waves = new ArrayList<List<EntitySystem>>();
+	}
+
+	/**
+	 * @return the pool systems are run on, or null
+	 */
+	public ForkJoinPool getPool() {
+		return m_pool;
+	}
+
+	/**
+	 * Sets the pool to run systems on.
+	 *
+	 * @param pool
+	 *            the pool, or null to run everything on the calling thread
+	 */
+	public void setPool(ForkJoinPool pool) {
+		m_pool = pool;
+	}
+
+	/**
+	 * Rebuilds the waves for a new list of EntitySystems.
+	 *
+	 * @param systems
+	 *            in the order they were added
+	 */
+	public void schedule(List<EntitySystem> systems) {
+		m_waves.clear();
+		int[] waves = new int[systems.size()];
+		for (int i = 0; i < systems.size(); i++) {
+			int wave = 0;
+			for (int j = 0; j < i; j++) {
+				if (waves[j] >= wave && conflicts(systems.get(j), systems.get(i)))
+					wave = waves[j] + 1;
+			}
+			waves[i] = wave;
+
+			while (m_waves.size() <= wave)
+				m_waves.add(new ArrayList<EntitySystem>());
+			m_waves.get(wave).add(systems.get(i));
+		}
+	}
+
+	/**
+	 * Runs a phase on every EntitySystem, returning once all of them are done. Systems which must stay on the main
+	 * thread are run on the calling thread.
+	 *
+	 * @param phase
+	 */
+	public void run(final Phase phase) {
+		for (List<EntitySystem> wave : m_waves) {
+			if (m_pool == null || wave.size() == 1) {
+				for (EntitySystem system : wave)
+					phase.run(system);
+				continue;
+			}
+			runWave(wave, phase);
+		}
+	}
+
+	private void runWave(List<EntitySystem> wave, final Phase phase) {
+		List<EntitySystem> local = new ArrayList<EntitySystem>();
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		for (final EntitySystem system : wave) {
+			if (isMainThreadOnly(system)) {
+				local.add(system);
+			} else {
+				tasks.add(m_pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						phase.run(system);
+					}
+				}));
+			}
+		}
+
+		RuntimeException failure = null;
+		try {
+			for (EntitySystem system : local)
+				phase.run(system);
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+		// every task is joined so nothing is still running when an exception is thrown
+		for (ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException e) {
+				if (failure == null)
+					failure = e;
+			}
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	private static boolean isMainThreadOnly(EntitySystem system) {
+		return !(system instanceof ScheduledSystem) || ((ScheduledSystem) system).isMainThreadOnly();
+	}
+
+	private static boolean conflicts(EntitySystem a, EntitySystem b) {
+		if (!(a instanceof ScheduledSystem) || !(b instanceof ScheduledSystem))
+			return true;
+		ScheduledSystem sa = (ScheduledSystem) a;
+		ScheduledSystem sb = (ScheduledSystem) b;
+		// main thread systems run one at a time anyway, so they keep their order
+		if (sa.isMainThreadOnly() && sb.isMainThreadOnly())
+			return true;
+		return writesAny(sa, sb.getReadComponents()) || writesAny(sa, sb.getWrittenComponents())
+				|| writesAny(sb, sa.getReadComponents());
+	}
+
+	private static boolean writesAny(ScheduledSystem system, String[] components) {
+		Set<String> written = new HashSet<String>();
+		for (String component : system.getWrittenComponents())
+			written.add(component);
+		for (String component : components) {
+			if (written.contains(component))
+				return true;
+		}
+		return false;
+	}
+}
@@ -1,6 +1,5 @@
 package engine.core;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -8,29 +7,73 @@ import java.util.List;
 import engine.core.exceptions.TagException;
 
 /**
- * An immutable List of tags. Taken from big-phage engine.
+ * An immutable List of tags. Taken from big-phage engine. The tags are interned into a Signature, so lookups and set
+ * tests are bitset operations, while the tags themselves are kept in the order they were added.
  */
 public class TagList implements Iterable<String> {
-	private ArrayList<String> m_tags = new ArrayList<String>();
+	private static final String[] EMPTY = new String[0];
 
-	public TagList() {
+	// the tags in the order they were added
+	private String[] m_tags;
+	// the tag ids
+	private Signature m_signature;
 
+	public TagList() {
+		m_tags = EMPTY;
+		m_signature = new Signature();
 	}
 
 	public TagList(String... strings) {
-		m_tags.addAll(Arrays.asList(strings));
+		if (strings == null)
+			throw new TagException("Cannot initialize a TagList with null strings!");
+		init(Arrays.asList(strings));
 	}
 
 	public TagList(List<String> strings) {
 		if (strings == null)
 			throw new TagException("Cannot initialize a TagList with null strings!");
-		m_tags.addAll(strings);
+		init(strings);
 	}
 
 	public TagList(TagList tags) {
 		if (tags == null)
 			throw new TagException("Cannot initialize a TagList with a null TagList!");
-		m_tags.addAll(tags.m_tags);
+		// both are immutable, so they can be shared
+		m_tags = tags.m_tags;
+		m_signature = tags.m_signature;
+	}
+
+	private TagList(String[] tags, Signature signature) {
+		m_tags = tags;
+		m_signature = signature;
+	}
+
+	/**
+	 * Interns the tags, dropping duplicates.
+	 * 
+	 * @param strings
+	 */
+	private void init(List<String> strings) {
+		m_signature = new Signature();
+		String[] tags = new String[strings.size()];
+		int count = 0;
+		for (String tag : strings) {
+			if (tag == null)
+				throw new TagException("Cannot have a null tag in a TagList!");
+			int id = SignatureRegistry.tagId(tag);
+			if (m_signature.get(id))
+				continue;
+			m_signature.set(id);
+			tags[count++] = tag;
+		}
+		m_tags = (count == tags.length) ? tags : Arrays.copyOf(tags, count);
+	}
+
+	/**
+	 * @return the tag ids - do not modify this
+	 */
+	public Signature getSignature() {
+		return m_signature;
 	}
 
 	/**
@@ -42,11 +85,15 @@ public class TagList implements Iterable<String> {
 	public TagList newAdd(String tag) {
 		if (tag == null)
 			throw new TagException("Cannot add a null tag to a TagList!");
-		if (m_tags.contains(tag))
+		int id = SignatureRegistry.tagId(tag);
+		if (m_signature.get(id))
 			throw new TagException("Cannot add the same tag twice!");
-		List<String> newTags = new ArrayList<String>(m_tags);
-		newTags.add(tag);
-		return new TagList(newTags);
+
+		String[] newTags = Arrays.copyOf(m_tags, m_tags.length + 1);
+		newTags[m_tags.length] = tag;
+		Signature newSignature = new Signature(m_signature);
+		newSignature.set(id);
+		return new TagList(newTags, newSignature);
 	}
 
 	/**
@@ -58,17 +105,38 @@ public class TagList implements Iterable<String> {
 	public TagList newRemove(String tag) {
 		if (tag == null)
 			throw new TagException("Cannot remove a null tag from a TagList!");
-		List<String> newTags = new ArrayList<String>(m_tags);
-		if (!newTags.contains(tag))
+		if (!hasTag(tag))
 			throw new TagException("Cannot remove nonexistant tag!");
 
-		newTags.remove(tag);
-		return new TagList(newTags);
+		String[] newTags = new String[m_tags.length - 1];
+		int count = 0;
+		for (String t : m_tags) {
+			if (!t.equals(tag))
+				newTags[count++] = t;
+		}
+		Signature newSignature = new Signature(m_signature);
+		newSignature.clear(SignatureRegistry.findTagId(tag));
+		return new TagList(newTags, newSignature);
 	}
 
 	@Override
 	public Iterator<String> iterator() {
-		return m_tags.iterator();
+		return Arrays.asList(m_tags).iterator();
+	}
+
+	/**
+	 * @return the number of tags
+	 */
+	public int size() {
+		return m_tags.length;
+	}
+
+	/**
+	 * @param index
+	 * @return the tag at the index, in the order they were added
+	 */
+	protected String get(int index) {
+		return m_tags[index];
 	}
 
 	/**
@@ -76,18 +144,16 @@ public class TagList implements Iterable<String> {
 	 * @return whether or not the TagList has the tag
 	 */
 	public boolean hasTag(String tag) {
-		return m_tags.contains(tag);
+		int id = SignatureRegistry.findTagId(tag);
+		return id >= 0 && m_signature.get(id);
 	}
 
 	/**
 	 * @param tags
 	 * @return whether the two set intersect
 	 */
-	@SuppressWarnings("unchecked")
 	public boolean intersects(TagList tags) {
-		List<String> tagsClone = (List<String>) m_tags.clone();
-		tagsClone.retainAll(tags.m_tags);
-		return !tagsClone.isEmpty();
+		return m_signature.intersects(tags.m_signature);
 	}
 
 	/**
@@ -95,14 +161,11 @@ public class TagList implements Iterable<String> {
 	 * @return whether the TagList contains all the Strings in the second TagList
 	 */
 	public boolean containsAll(TagList tags) {
-		return m_tags.containsAll(tags.m_tags);
-		/*List<String> tagsClone = (List<String>) tags.m_tags.clone();
-		tagsClone.retainAll(m_tags);
-		return tagsClone.size() == tags.m_tags.size();*/
+		return m_signature.containsAll(tags.m_signature);
 	}
 
 	@Override
 	public String toString() {
-		return Arrays.toString(m_tags.toArray());
+		return Arrays.toString(m_tags);
 	}
-}
\ No newline at end of file
+}
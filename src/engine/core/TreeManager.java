@@ -27,6 +27,17 @@ public class TreeManager {
 		m_childNames = new HashMap<String, Entity>();
 	}
 
+	/**
+	 * Clears the children and sets a new parent. Used when a pooled Entity is reused.
+	 * 
+	 * @param parent
+	 */
+	protected void reset(TreeNode parent) {
+		m_parent = parent;
+		m_children.clear();
+		m_childNames.clear();
+	}
+
 	/**
 	 * Clears the references to make garbage collection simpler.
 	 */
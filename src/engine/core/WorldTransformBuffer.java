@@ -0,0 +1,126 @@
+package engine.core;
+
+import java.util.Arrays;
+
+import engine.core.exceptions.SceneException;
+
+/**
+ * The world transforms of all the Entities in a Scene, stored in primitive arrays indexed by Entity slot. The Scene
+ * fills the buffer in one pass each frame before the EntitySystems' postUpdate(). Reading an Entity whose transform
+ * changed since then recomputes it first, so reads are always current.
+ */
+public class WorldTransformBuffer {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private Scene m_scene;
+
+	private float[] m_x;
+	private float[] m_y;
+	private float[] m_rotation;
+	private float[] m_scaleX;
+	private float[] m_scaleY;
+
+	/**
+	 * Initializes a WorldTransformBuffer for a Scene.
+	 *
+	 * @param scene
+	 */
+	protected WorldTransformBuffer(Scene scene) {
+		m_scene = scene;
+		m_x = new float[INITIAL_CAPACITY];
+		m_y = new float[INITIAL_CAPACITY];
+		m_rotation = new float[INITIAL_CAPACITY];
+		m_scaleX = new float[INITIAL_CAPACITY];
+		m_scaleY = new float[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Makes room for a slot.
+	 *
+	 * @param slot
+	 */
+	protected void ensureCapacity(int slot) {
+		if (slot < m_x.length)
+			return;
+		int capacity = Math.max(slot + 1, m_x.length * 2);
+		m_x = Arrays.copyOf(m_x, capacity);
+		m_y = Arrays.copyOf(m_y, capacity);
+		m_rotation = Arrays.copyOf(m_rotation, capacity);
+		m_scaleX = Arrays.copyOf(m_scaleX, capacity);
+		m_scaleY = Arrays.copyOf(m_scaleY, capacity);
+	}
+
+	/**
+	 * Stores the world transform of a slot.
+	 *
+	 * @param slot
+	 * @param x
+	 * @param y
+	 * @param rotation
+	 * @param scaleX
+	 * @param scaleY
+	 */
+	protected void set(int slot, float x, float y, float rotation, float scaleX, float scaleY) {
+		m_x[slot] = x;
+		m_y[slot] = y;
+		m_rotation[slot] = rotation;
+		m_scaleX[slot] = scaleX;
+		m_scaleY[slot] = scaleY;
+	}
+
+	/**
+	 * Brings the Entity's world transform up to date.
+	 *
+	 * @param entity
+	 * @return the slot to read
+	 */
+	private int current(Entity entity) {
+		if (entity.isDestroyed())
+			throw new SceneException("Cannot read the world transform of a destroyed Entity!");
+		if (entity.getSlot() < 0)
+			throw new SceneException("Cannot read the world transform of an Entity which hasn't been added yet!");
+		if (entity.isWorldDirty())
+			m_scene.updateWorldTransform(entity);
+		return entity.getSlot();
+	}
+
+	/**
+	 * @param entity
+	 * @return the world x translation
+	 */
+	public float getX(Entity entity) {
+		return m_x[current(entity)];
+	}
+
+	/**
+	 * @param entity
+	 * @return the world y translation
+	 */
+	public float getY(Entity entity) {
+		return m_y[current(entity)];
+	}
+
+	/**
+	 * @param entity
+	 * @return the world rotation
+	 */
+	public float getRotation(Entity entity) {
+		return m_rotation[current(entity)];
+	}
+
+	/**
+	 * @param entity
+	 * @return the world x scale
+	 */
+	public float getScaleX(Entity entity) {
+		return m_scaleX[current(entity)];
+	}
+
+	/**
+	 * @param entity
+	 * @return the world y scale
+	 */
+	public float getScaleY(Entity entity) {
+		return m_scaleY[current(entity)];
+	}
+}
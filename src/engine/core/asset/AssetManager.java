@@ -28,7 +28,8 @@ import engine.transform.asset.XMLXPythonDecoder;
 import gltools.gl.GL;
 
 /**
- * Manages the assets of a game.
+ * Manages the assets of a game. Each Game can have its own AssetManager (see Game.setAssets()), or Games can share one
+ * which is only read once it is loaded.
  */
 public class AssetManager {
 	// maps the type to the asset loaders
@@ -38,7 +39,13 @@ public class AssetManager {
 	// maps the Resource identifier to the Resource
 	private HashMap<String, Asset> m_assets = new HashMap<String, Asset>();
 
-	private AssetManager(GL gl) {
+	/**
+	 * Initializes an AssetManager with the default loaders. Unlike init(), this doesn't change instance().
+	 * 
+	 * @param gl
+	 *            the GL to upload textures with, or null when headless
+	 */
+	public AssetManager(GL gl) {
 		StringReader reader = new StringReader();
 
 		MaterialLoader matLoader = new MaterialLoader(gl);
@@ -204,8 +211,25 @@ public class AssetManager {
 		return INSTANCE;
 	}
 
+	/**
+	 * Initializes the AssetManager.
+	 * 
+	 * @param gl
+	 *            the GL to upload textures with, or null when headless
+	 * @return the AssetManager
+	 */
 	public static AssetManager init(GL gl) {
 		INSTANCE = new AssetManager(gl);
 		return INSTANCE;
 	}
+
+	/**
+	 * Initializes an AssetManager which needs no GL. Materials record their textures' sizes without uploading them, so
+	 * the assets of a Game can be loaded on a server.
+	 * 
+	 * @return the AssetManager
+	 */
+	public static AssetManager initHeadless() {
+		return init(null);
+	}
 }
@@ -1,6 +1,12 @@
 package engine.core.asset;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import commons.GLResourceLocator;
 import commons.Resource;
@@ -13,11 +19,16 @@ import gltools.texture.TextureFactory;
 import gltools.texture.TextureWrapMode;
 
 /**
- * Loads materials. If there is no MaterialParams supplied, the Material2D will be lighted.
+ * Loads materials. If there is no MaterialParams supplied, the Material2D will be lighted. If the GL is null, as when a
+ * Game runs headless, the textures are not uploaded: only their size and settings are recorded.
  */
 public class MaterialLoader implements AssetLoader<Material2D> {
 	private GL m_gl;
 
+	/**
+	 * @param gl
+	 *            the GL to upload textures with, or null to only record them
+	 */
 	public MaterialLoader(GL gl) {
 		m_gl = gl;
 	}
@@ -41,14 +52,24 @@ public class MaterialLoader implements AssetLoader<Material2D> {
 		return mat;
 	}
 
+	/**
+	 * @return whether textures are only recorded rather than uploaded
+	 */
+	public boolean isHeadless() {
+		return m_gl == null;
+	}
+
 	/**
 	 * Makes a Texture2D from a Resource.
 	 * 
 	 * @param gl
+	 *            the GL to upload the texture with, or null to only record it
 	 * @param resource
 	 * @return
 	 */
 	public static Texture2D createTexture(GL gl, Resource resource) {
+		if (gl == null)
+			return describeTexture(resource);
 		try {
 			Texture2D texture = TextureFactory.s_loadTexture(gl, resource.getResource(),
 					new GLResourceLocator(resource.getLocator()));
@@ -62,4 +83,32 @@ public class MaterialLoader implements AssetLoader<Material2D> {
 			throw new AssetException("Material could not be created: " + resource.getResource(), e);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Makes a Texture2D which is never uploaded, with the size of the image. Only the image header is read.
+	 * 
+	 * @param resource
+	 * @return
+	 */
+	private static Texture2D describeTexture(Resource resource) {
+		try (InputStream in = resource.open(); ImageInputStream image = ImageIO.createImageInputStream(in)) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(image);
+			if (!readers.hasNext())
+				throw new AssetException("Unknown image format: " + resource.getResource());
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(image, true, true);
+				Texture2D texture = new Texture2D();
+				texture.setWidth(reader.getWidth(0));
+				texture.setHeight(reader.getHeight(0));
+				texture.setTWrapMode(TextureWrapMode.REPEAT);
+				texture.setSWrapMode(TextureWrapMode.REPEAT);
+				return texture;
+			} finally {
+				reader.dispose();
+			}
+		} catch (IOException e) {
+			throw new AssetException("Material could not be created: " + resource.getResource(), e);
+		}
+	}
+}
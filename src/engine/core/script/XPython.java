@@ -3,6 +3,7 @@ package engine.core.script;
 import java.util.List;
 
 import org.python.core.Py;
+import org.python.core.PyCode;
 import org.python.core.PyFloat;
 import org.python.core.PyObject;
 import org.python.util.PythonInterpreter;
@@ -19,6 +20,8 @@ public class XPython extends XScript {
 	private PyObject m_exit;
 
 	private String m_code;
+	// the compiled code, shared with duplicates once it exists
+	private PyCode m_compiled;
 
 	static {
 		XScriptTypeManager.instance().registerType(XPython.class, "python", new XPythonFactory());;
@@ -30,6 +33,11 @@ public class XPython extends XScript {
 		m_code = code;
 	}
 
+	private XPython(String code, PyCode compiled) {
+		this(code);
+		m_compiled = compiled;
+	}
+
 	@Override
 	public void onContextSet() {
 		m_python = new PythonInterpreter();
@@ -52,7 +60,9 @@ public class XPython extends XScript {
 
 	@Override
 	public void init() {
-		m_python.exec(m_code);
+		if (m_compiled == null)
+			m_compiled = m_python.compile(m_code);
+		m_python.exec(m_compiled);
 
 		m_sceneLoad = m_python.get(XScript.SCENE_LOAD);
 		m_update = m_python.get(XScript.UPDATE);
@@ -103,11 +113,17 @@ public class XPython extends XScript {
 
 	@Override
 	public XPython duplicate() {
-		XPython python =  new XPython(m_code);
+		XPython python = new XPython(m_code, m_compiled);
 		python.setIdentifier(getIdentifier());
 		return python;
 	}
 
+	@Override
+	public void precompile() {
+		if (m_compiled == null)
+			m_compiled = new PythonInterpreter().compile(m_code);
+	}
+
 	@Override
 	public void addScriptObject(XScriptObject object) {
 		m_python.set(object.getName(), object.getObject());
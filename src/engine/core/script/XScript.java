@@ -88,6 +88,14 @@ public abstract class XScript extends Asset {
 	 */
 	public abstract XScript duplicate();
 
+	/**
+	 * Prepares the Script to be duplicated many times, for example by compiling its code once so the duplicates can
+	 * share it. Does nothing by default.
+	 */
+	public void precompile() {
+
+	}
+
 	/**
 	 * Adds a ScriptObject to the Script.
 	 * 
@@ -1,12 +1,16 @@
 package engine.core.script;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Maps XScript classes to their type names and factories. Types are registered once by the XScript classes and then
+ * only read, so the one instance is shared by every Game in the JVM.
+ */
 public class XScriptTypeManager {
-	private static XScriptTypeManager s_manager;
+	private static final XScriptTypeManager s_manager = new XScriptTypeManager();
 	
-	private HashMap<String, XScriptFactory> m_factories = new HashMap<String, XScriptFactory>();
-	private HashMap<Class<? extends XScript>, String> m_types = new HashMap<Class<? extends XScript>, String>();
+	private ConcurrentHashMap<String, XScriptFactory> m_factories = new ConcurrentHashMap<String, XScriptFactory>();
+	private ConcurrentHashMap<Class<? extends XScript>, String> m_types = new ConcurrentHashMap<Class<? extends XScript>, String>();
 	
 	
 	public String getType(Class<? extends XScript> clazz) {
@@ -22,7 +26,6 @@ public class XScriptTypeManager {
 	}
 	
 	public static XScriptTypeManager instance() {
-		if (s_manager == null) s_manager = new XScriptTypeManager();
 		return s_manager;
 	}
 }
@@ -186,6 +186,23 @@ public class XMLFormat extends Format<String, EntityDef, EntityDef> {
 	}
 
 	public static class XMLScriptDecoder implements MetaDecoder<Element, EntityDef> {
+		private AssetManager m_assets;
+
+		/**
+		 * Initializes an XMLScriptDecoder which finds the scripts in AssetManager.instance().
+		 */
+		public XMLScriptDecoder() {
+		}
+
+		/**
+		 * Initializes an XMLScriptDecoder which finds the scripts in an AssetManager, like the one of a Game.
+		 * 
+		 * @param assets
+		 */
+		public XMLScriptDecoder(AssetManager assets) {
+			m_assets = assets;
+		}
+
 		@Override
 		public boolean isDecodable(Element value) {
 			return value.tagName().equals("scripts");
@@ -195,9 +212,10 @@ public class XMLFormat extends Format<String, EntityDef, EntityDef> {
 		public void decode(Element value, EntityDef object) {
 			if (!isDecodable(value))
 				throw new IllegalArgumentException("Cannot decode: " + value);
+			AssetManager assets = (m_assets == null) ? AssetManager.instance() : m_assets;
 			Elements children = value.children();
 			for (Element s : children) {
-				XScript script = AssetManager.instance().get(s.attr("asset"), XScript.class);
+				XScript script = assets.get(s.attr("asset"), XScript.class);
 				object.getBuilder().addScript(script);
 			}
 		}
@@ -16,19 +16,21 @@ import org.dyn4j.geometry.Vector2;
 import commons.Transform2f;
 import commons.matrix.Vector2f;
 
+import engine.core.BatchedSystem;
+import engine.core.CTransform;
 import engine.core.Entity;
 import engine.core.EntityListener;
-import engine.core.EntitySystem;
 import engine.core.Scene;
+import engine.core.ScheduledSystem;
 import engine.core.SimpleEntityFilter;
 import engine.core.TreeNode;
+import engine.core.WorldTransformBuffer;
 import engine.core.script.XScript;
-import engine.imp.physics.PhysicsUtils;
 
 /**
  * Manages the bodies of a Game.
  */
-public class BodySystem implements EntitySystem {
+public class BodySystem implements ScheduledSystem, BatchedSystem {
 	private static final SimpleEntityFilter s_updateFilter = new SimpleEntityFilter(new String[] { CBody.NAME }, new String[0],
 			false);
 	private static final SimpleEntityFilter s_eventFilter = new SimpleEntityFilter(new String[] { CBody.NAME }, new String[0],
@@ -112,14 +114,24 @@ public class BodySystem implements EntitySystem {
 		}
 	}
 
+	@Override
+	public void entitiesAdded(List<Entity> entities, Scene scene) {
+		if (scene.isCurrent()) {
+			// brings every new world transform up to date in one pass instead of one Entity at a time
+			scene.updateWorldTransforms();
+			for (Entity entity : entities)
+				addEntityToWorld(entity, scene);
+		}
+	}
+
 	private void addEntityToWorld(Entity entity, Scene scene) {
 		CBody entityPhysics = (CBody) entity.components().get(CBody.NAME);
 		Body body = entityPhysics.getBody();
 
-		Transform2f worldTransform = scene.getWorldTransform(entity);
+		WorldTransformBuffer world = scene.getWorldTransforms();
 		Transform newTrans = new Transform();
-		newTrans.setTranslation(PhysicsUtils.toDyn4j(worldTransform.getTranslation()));
-		newTrans.setRotation(worldTransform.getRotation());
+		newTrans.setTranslation(world.getX(entity), world.getY(entity));
+		newTrans.setRotation(world.getRotation(entity));
 
 		body.setTransform(newTrans);
 		body.setUserData(entity);
@@ -136,6 +148,35 @@ public class BodySystem implements EntitySystem {
 		}
 	}
 
+	@Override
+	public void entitiesRemoved(List<Entity> entities, Scene scene) {
+		if (scene.isCurrent()) {
+			List<Body> bodies = new ArrayList<Body>(entities.size());
+			for (Entity entity : entities) {
+				Body body = ((CBody) entity.components().get(CBody.NAME)).getBody();
+				if (body.getWorld() == m_world)
+					bodies.add(body);
+			}
+			// removeAllBodies() doesn't search the body list for each body
+			if (bodies.size() == m_world.getBodyCount()) {
+				m_world.removeAllBodies();
+			} else {
+				for (Body body : bodies)
+					m_world.removeBody(body);
+			}
+		}
+	}
+
+	@Override
+	public void entitiesEnabled(List<Entity> entities, Scene scene) {
+		entitiesAdded(entities, scene);
+	}
+
+	@Override
+	public void entitiesDisabled(List<Entity> entities, Scene scene) {
+		entitiesRemoved(entities, scene);
+	}
+
 	@Override
 	public void entityMoved(Entity entity, TreeNode oldParent, TreeNode newParent, Scene scene) {
 
@@ -154,12 +195,6 @@ public class BodySystem implements EntitySystem {
 	@Override
 	public void update(Scene scene, float time) {
 		m_world.update(time / 1000);
-
-		for (ContactEvent event : m_contacts) {
-			event.entity1.scripts().callFunc(COLLISION_FUNCTION, event.entity2, event.contact);
-			event.entity2.scripts().callFunc(COLLISION_FUNCTION, event.entity1, event.contact);
-		}
-		m_contacts.clear();
 	}
 
 	@Override
@@ -168,16 +203,43 @@ public class BodySystem implements EntitySystem {
 
 		Body body = entityPhysics.getBody();
 
-		Vector2 trans = body.getTransform().getTranslation();
+		// read the parts directly, since getTranslation() copies into a new Vector2
+		Transform trans = body.getTransform();
 
 		// TODO: transforms relative to parent
-		entity.transform().quietSetTransform(
-				new Transform2f(PhysicsUtils.fromDyn4j(trans), (float) body.getTransform().getRotation(), entity.transform()
-						.getScale()));
+		CTransform transform = entity.transform();
+		transform.quietSetTransform((float) trans.getTranslationX(), (float) trans.getTranslationY(),
+				(float) trans.getRotation(), transform.getScaleX(), transform.getScaleY());
 	}
 
 	@Override
 	public void postUpdate(Scene scene) {
+		// scripts can change the Scene, so they are called here on the main thread rather than in update()
+		for (ContactEvent event : m_contacts) {
+			event.entity1.scripts().callFunc(COLLISION_FUNCTION, event.entity2, event.contact);
+			event.entity2.scripts().callFunc(COLLISION_FUNCTION, event.entity1, event.contact);
+		}
+		m_contacts.clear();
+	}
+
+	@Override
+	public String[] getReadComponents() {
+		return new String[] { CBody.NAME, CTransform.NAME };
+	}
+
+	@Override
+	public String[] getWrittenComponents() {
+		return new String[] { CBody.NAME, CTransform.NAME };
+	}
+
+	@Override
+	public boolean isMainThreadOnly() {
+		return false;
+	}
+
+	@Override
+	public boolean isEntityUpdateParallel() {
+		return true;
 	}
 
 	@Override
@@ -207,11 +269,12 @@ public class BodySystem implements EntitySystem {
 		@Override
 		public void transformSet(Entity entity, Transform2f oldTransform, Transform2f newTransform, Scene scene) {
 			Body body = ((CBody) entity.components().get(CBody.NAME)).getBody();
-			Transform2f worldTrans = scene.getWorldTransform(entity);
-			Transform newTrans = new Transform();
-			newTrans.setTranslation(worldTrans.getTranslation().getX(), worldTrans.getTranslation().getY());
-			newTrans.setRotation(worldTrans.getRotation());
-			body.setTransform(newTrans);
+			WorldTransformBuffer world = scene.getWorldTransforms();
+			// reset the body's own transform instead of allocating one per change; setRotation is relative in dyn4j
+			Transform trans = body.getTransform();
+			trans.identity();
+			trans.rotate(world.getRotation(entity));
+			trans.translate(world.getX(entity), world.getY(entity));
 			body.setAsleep(false);
 			// TODO: scaling
 		}
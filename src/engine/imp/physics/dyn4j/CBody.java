@@ -9,7 +9,6 @@ import org.dyn4j.geometry.Mass;
 import org.dyn4j.geometry.Mass.Type;
 import org.dyn4j.geometry.Rectangle;
 
-import commons.BiMap;
 import commons.matrix.Vector2f;
 
 import engine.core.Component;
@@ -39,8 +38,6 @@ public class CBody implements Component {
 		}
 	};
 
-	private static BiMap<Filter, CBody> s_allFilters = new BiMap<Filter, CBody>();
-
 	/**
 	 * Creates a CDyn4jBody.
 	 * 
@@ -420,29 +417,7 @@ public class CBody implements Component {
 			m_body.setMass(m_fixture.createMass());
 		}
 
-		if (s_allFilters.containsValue(this)) {
-			s_allFilters.removeBackward(this);
-		}
-
-		Filter filter = new Filter() {
-			@Override
-			public boolean isAllowed(Filter filter) {
-				CBody cbody1 = s_allFilters.getForward(this);
-				CBody cbody2 = s_allFilters.getForward(filter);
-				Entity entity1 = (Entity) cbody1.getBody().getUserData();
-				Entity entity2 = (Entity) cbody2.getBody().getUserData();
-
-				if (!cbody1.getCollisionFilter().canCollide(entity1, entity2))
-					return false;
-
-				if (!cbody2.getCollisionFilter().canCollide(entity2, entity1))
-					return false;
-
-				return true;
-			}
-		};
-		s_allFilters.put(filter, this);
-		m_fixture.setFilter(filter);
+		m_fixture.setFilter(new BodyFilter(this));
 	}
 
 	/**
@@ -508,4 +483,34 @@ public class CBody implements Component {
 		};
 		return builder;
 	}
+
+	/**
+	 * The dyn4j Filter of a CBody's fixture. It holds its CBody, so two fixtures can be checked against each other's
+	 * CollisionFilters without a static lookup shared by every Game.
+	 */
+	private static class BodyFilter implements Filter {
+		private CBody m_cbody;
+
+		public BodyFilter(CBody cbody) {
+			m_cbody = cbody;
+		}
+
+		@Override
+		public boolean isAllowed(Filter filter) {
+			if (!(filter instanceof BodyFilter))
+				return true;
+			CBody cbody1 = m_cbody;
+			CBody cbody2 = ((BodyFilter) filter).m_cbody;
+			Entity entity1 = (Entity) cbody1.getBody().getUserData();
+			Entity entity2 = (Entity) cbody2.getBody().getUserData();
+
+			if (!cbody1.getCollisionFilter().canCollide(entity1, entity2))
+				return false;
+
+			if (!cbody2.getCollisionFilter().canCollide(entity2, entity1))
+				return false;
+
+			return true;
+		}
+	}
 }
@@ -0,0 +1,65 @@
+package engine.imp.physics.dyn4j;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+import engine.core.ComponentCodec;
+import engine.core.Entity;
+import engine.core.SnapshotBuffer;
+
+/**
+ * Writes the motion of a CBody to a SceneSnapshot: the Body's position and rotation, its velocities and whether it is
+ * asleep. The position is kept at full precision rather than taken from the CTransform, so a restored simulation carries
+ * on from the same place. The contacts and time step remainder kept by the World are not captured, so the steps after a
+ * restore can differ slightly from the ones taken the first time.
+ */
+public class CBodyCodec implements ComponentCodec<CBody> {
+	public CBodyCodec() {
+	}
+
+	@Override
+	public String getName() {
+		return CBody.NAME;
+	}
+
+	@Override
+	public void write(Entity entity, CBody component, SnapshotBuffer out) {
+		Body body = component.getBody();
+		Transform transform = body.getTransform();
+		out.putDouble(transform.getTranslationX());
+		out.putDouble(transform.getTranslationY());
+		out.putDouble(transform.getRotation());
+		Vector2 velocity = body.getLinearVelocity();
+		out.putDouble(velocity.x);
+		out.putDouble(velocity.y);
+		out.putDouble(body.getAngularVelocity());
+		out.putBoolean(body.isAsleep());
+	}
+
+	@Override
+	public void read(Entity entity, CBody component, SnapshotBuffer in) {
+		Body body = component.getBody();
+		double x = in.getDouble();
+		double y = in.getDouble();
+		double rotation = in.getDouble();
+		double velocityX = in.getDouble();
+		double velocityY = in.getDouble();
+		double angularVelocity = in.getDouble();
+		boolean asleep = in.getBoolean();
+
+		Transform transform = body.getTransform();
+		transform.identity();
+		transform.rotate(rotation);
+		transform.translate(x, y);
+		// the start of the step, for continuous collision detection
+		body.getInitialTransform().set(transform);
+
+		// sleeping zeroes the velocities and forces, so it goes first
+		body.setAsleep(asleep);
+		body.setLinearVelocity(velocityX, velocityY);
+		body.setAngularVelocity(angularVelocity);
+		body.clearAccumulatedForce();
+		body.clearAccumulatedTorque();
+	}
+}
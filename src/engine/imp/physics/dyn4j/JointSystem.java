@@ -1,13 +1,17 @@
 package engine.imp.physics.dyn4j;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.joint.Joint;
 
+import engine.core.BatchedSystem;
 import engine.core.Entity;
 import engine.core.EntityFilter;
-import engine.core.EntitySystem;
 import engine.core.Scene;
+import engine.core.ScheduledSystem;
 import engine.core.SimpleEntityFilter;
 import engine.core.TreeNode;
 import engine.core.script.XScript;
@@ -15,7 +19,7 @@ import engine.core.script.XScript;
 /**
  * Manages the Joints in a game.
  */
-public class JointSystem implements EntitySystem {
+public class JointSystem implements ScheduledSystem, BatchedSystem {
 	private static final SimpleEntityFilter s_updateFilter = new SimpleEntityFilter(new String[] { CJoint.NAME }, new String[0],
 			true);
 	private static final SimpleEntityFilter s_eventFilter = new SimpleEntityFilter(new String[] { CJoint.NAME }, new String[0],
@@ -55,6 +59,47 @@ public class JointSystem implements EntitySystem {
 		}
 	}
 
+	@Override
+	public void entitiesAdded(List<Entity> entities, Scene scene) {
+		for (Entity entity : entities)
+			entityAdded(entity, entity.tree().getParent(), scene);
+	}
+
+	@Override
+	public void entitiesRemoved(List<Entity> entities, Scene scene) {
+		if (scene.isCurrent()) {
+			World world = m_bodySystem.getWorld();
+			Set<Joint> joints = new HashSet<Joint>();
+			for (Entity entity : entities)
+				joints.add(((CJoint) entity.components().get(CJoint.NAME)).getJoint());
+
+			// removeAllJoints() doesn't search the joint list for each joint
+			boolean all = true;
+			for (Joint joint : world.getJoints()) {
+				if (!joints.contains(joint)) {
+					all = false;
+					break;
+				}
+			}
+			if (all) {
+				world.removeAllJoints();
+			} else {
+				for (Joint joint : joints)
+					world.removeJoint(joint);
+			}
+		}
+	}
+
+	@Override
+	public void entitiesEnabled(List<Entity> entities, Scene scene) {
+		entitiesAdded(entities, scene);
+	}
+
+	@Override
+	public void entitiesDisabled(List<Entity> entities, Scene scene) {
+		entitiesRemoved(entities, scene);
+	}
+
 	@Override
 	public void entityMoved(Entity entity, TreeNode oldParent, TreeNode newParent, Scene scene) {
 	}
@@ -81,6 +126,26 @@ public class JointSystem implements EntitySystem {
 	public void postUpdate(Scene scene) {
 	}
 
+	@Override
+	public String[] getReadComponents() {
+		return new String[] { CJoint.NAME };
+	}
+
+	@Override
+	public String[] getWrittenComponents() {
+		return new String[0];
+	}
+
+	@Override
+	public boolean isMainThreadOnly() {
+		return false;
+	}
+
+	@Override
+	public boolean isEntityUpdateParallel() {
+		return false;
+	}
+
 	@Override
 	public EntityFilter getUpdateFilter() {
 		return s_updateFilter;
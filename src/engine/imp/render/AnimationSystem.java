@@ -4,8 +4,8 @@ import commons.Logger;
 
 import engine.core.Entity;
 import engine.core.EntityFilter;
-import engine.core.EntitySystem;
 import engine.core.Scene;
+import engine.core.ScheduledSystem;
 import engine.core.SimpleEntityFilter;
 import engine.core.TreeNode;
 import engine.core.script.XScript;
@@ -13,7 +13,7 @@ import engine.core.script.XScript;
 /**
  * Updates animations.
  */
-public class AnimationSystem implements EntitySystem {
+public class AnimationSystem implements ScheduledSystem {
 	private static final SimpleEntityFilter s_filter = new SimpleEntityFilter(new String[] { CRender.NAME, CAnimation.NAME },
 			new String[0], false);
 
@@ -98,6 +98,26 @@ public class AnimationSystem implements EntitySystem {
 	public void postUpdate(Scene scene) {
 	}
 
+	@Override
+	public String[] getReadComponents() {
+		return new String[] { CRender.NAME, CAnimation.NAME };
+	}
+
+	@Override
+	public String[] getWrittenComponents() {
+		return new String[] { CRender.NAME, CAnimation.NAME };
+	}
+
+	@Override
+	public boolean isMainThreadOnly() {
+		return false;
+	}
+
+	@Override
+	public boolean isEntityUpdateParallel() {
+		return true;
+	}
+
 	@Override
 	public EntityFilter getUpdateFilter() {
 		return s_filter;
@@ -78,6 +78,24 @@ public class CAnimation implements Component {
 		return m_current;
 	}
 
+	/**
+	 * @return the name of the current Animation, or null if none is playing
+	 */
+	protected String getCurrentName() {
+		return m_currentName;
+	}
+
+	/**
+	 * Sets the current Animation without restarting it.
+	 * 
+	 * @param name
+	 *            the name of the Animation, or null to stop playing
+	 */
+	protected void setCurrentAnimation(String name) {
+		m_current = (name == null) ? null : getAnimation(name);
+		m_currentName = name;
+	}
+
 	/**
 	 * Sets the current Animation.
 	 * 
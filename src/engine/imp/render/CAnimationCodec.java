@@ -0,0 +1,53 @@
+package engine.imp.render;
+
+import engine.core.ComponentCodec;
+import engine.core.Entity;
+import engine.core.SnapshotBuffer;
+
+/**
+ * Writes the playback of a CAnimation to a SceneSnapshot: which Animation is playing, its frame and the time into it.
+ * On restore the CRender of the Entity, if it has one, is given the Material of the restored frame.
+ */
+public class CAnimationCodec implements ComponentCodec<CAnimation> {
+	public CAnimationCodec() {
+	}
+
+	@Override
+	public String getName() {
+		return CAnimation.NAME;
+	}
+
+	@Override
+	public void write(Entity entity, CAnimation component, SnapshotBuffer out) {
+		Animation current = component.getCurrentAnimation();
+		out.putString(component.getCurrentName());
+		out.putInt((current == null) ? 0 : current.getCurrentFrame());
+		out.putBoolean(current != null && current.isFirstFrame());
+		out.putFloat(component.getTimeElapsed());
+	}
+
+	@Override
+	public void read(Entity entity, CAnimation component, SnapshotBuffer in) {
+		String name = in.getString(component.getCurrentName());
+		int frame = in.getInt();
+		boolean firstFrame = in.getBoolean();
+		float elapsed = in.getFloat();
+
+		if (name != component.getCurrentName())
+			component.setCurrentAnimation(name);
+		component.setTimeElapsed(elapsed);
+		Animation current = component.getCurrentAnimation();
+		if (current == null)
+			return;
+		current.setCurrentFrame(frame);
+		current.setFirstFrame(firstFrame);
+
+		// the AnimationSystem only sets the Material when the frame changes
+		if (!firstFrame && entity.components().has(CRender.NAME)) {
+			CRender render = (CRender) entity.components().get(CRender.NAME);
+			Material2D material = current.currentFrame().getMaterial();
+			if (render.getMaterial() != material)
+				render.setMaterial(material);
+		}
+	}
+}
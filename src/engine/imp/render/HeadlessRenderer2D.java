@@ -0,0 +1,338 @@
+package engine.imp.render;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import glcommon.font.Font;
+import glcommon.vector.Matrix3f;
+import glcommon.vector.Vector2f;
+import glextra.material.Material;
+import glextra.renderer.Light;
+import glextra.renderer.Renderer2D;
+import gltools.display.Window;
+import gltools.gl.GL;
+
+/**
+ * A Renderer2D which draws nothing and needs no GL, for running a Game without a display. It keeps track of the
+ * coordinate system and the model and view transforms like a real renderer, and counts what would have been drawn in
+ * the last frame so a headless Game can still be checked.
+ */
+public class HeadlessRenderer2D implements Renderer2D {
+	private Window m_display;
+	private Material m_material;
+	private Font m_font;
+
+	private float m_left;
+	private float m_right;
+	private float m_bottom;
+	private float m_top;
+
+	// the model transform as the affine matrix [a c tx; b d ty]
+	private float[] m_model = new float[] { 1f, 0f, 0f, 1f, 0f, 0f };
+	private float m_modelRotation;
+	private Deque<float[]> m_modelStack = new ArrayDeque<float[]>();
+
+	private float m_viewX;
+	private float m_viewY;
+	private float m_viewScaleX = 1f;
+	private float m_viewScaleY = 1f;
+	private Deque<float[]> m_viewStack = new ArrayDeque<float[]>();
+
+	private int m_rects;
+	private int m_strings;
+	private int m_lights;
+	private int m_lastRects;
+	private int m_lastStrings;
+	private int m_lastLights;
+	private long m_frames;
+
+	public HeadlessRenderer2D() {
+	}
+
+	@Override
+	public void init(float left, float right, float bottom, float top, Window window) {
+		m_display = window;
+		updateProjection(left, right, bottom, top);
+	}
+
+	/**
+	 * @return null, as there is no GL
+	 */
+	@Override
+	public GL getGL() {
+		return null;
+	}
+
+	@Override
+	public void setMaterial(Material material) {
+		m_material = material;
+	}
+
+	@Override
+	public Material getMaterial() {
+		return m_material;
+	}
+
+	@Override
+	public void setFont(Font font) {
+		m_font = font;
+	}
+
+	@Override
+	public Font getFont() {
+		return m_font;
+	}
+
+	@Override
+	public float getCSTop() {
+		return m_top;
+	}
+
+	@Override
+	public float getCSBottom() {
+		return m_bottom;
+	}
+
+	@Override
+	public float getCSRight() {
+		return m_right;
+	}
+
+	@Override
+	public float getCSLeft() {
+		return m_left;
+	}
+
+	@Override
+	public float getCSWidth() {
+		return m_left + m_right;
+	}
+
+	@Override
+	public float getCSHeight() {
+		return m_bottom + m_top;
+	}
+
+	@Override
+	public Window getDisplay() {
+		return m_display;
+	}
+
+	@Override
+	public void updateProjection(float left, float right, float bottom, float top) {
+		m_left = left;
+		m_right = right;
+		m_bottom = bottom;
+		m_top = top;
+	}
+
+	@Override
+	public void viewTrans(float x, float y) {
+		m_viewX += x;
+		m_viewY += y;
+	}
+
+	@Override
+	public void viewScale(float x, float y) {
+		m_viewScaleX *= x;
+		m_viewScaleY *= y;
+	}
+
+	@Override
+	public void translate(float x, float y) {
+		float[] m = m_model;
+		m[4] += m[0] * x + m[2] * y;
+		m[5] += m[1] * x + m[3] * y;
+	}
+
+	@Override
+	public void scale(float x, float y) {
+		float[] m = m_model;
+		m[0] *= x;
+		m[1] *= x;
+		m[2] *= y;
+		m[3] *= y;
+	}
+
+	@Override
+	public void rotate(float theta) {
+		float[] m = m_model;
+		float cos = (float) Math.cos(theta);
+		float sin = (float) Math.sin(theta);
+		float a = m[0] * cos + m[2] * sin;
+		float b = m[1] * cos + m[3] * sin;
+		float c = m[2] * cos - m[0] * sin;
+		float d = m[3] * cos - m[1] * sin;
+		m[0] = a;
+		m[1] = b;
+		m[2] = c;
+		m[3] = d;
+		m_modelRotation += theta;
+	}
+
+	@Override
+	public Vector2f getViewTranslation() {
+		return new Vector2f(m_viewX, m_viewY);
+	}
+
+	@Override
+	public Vector2f getModelTranslation() {
+		return new Vector2f(m_model[4], m_model[5]);
+	}
+
+	@Override
+	public Vector2f getViewScale() {
+		return new Vector2f(m_viewScaleX, m_viewScaleY);
+	}
+
+	@Override
+	public Vector2f getModelScale() {
+		float[] m = m_model;
+		return new Vector2f((float) Math.sqrt(m[0] * m[0] + m[1] * m[1]), (float) Math.sqrt(m[2] * m[2] + m[3] * m[3]));
+	}
+
+	@Override
+	public float getViewRotation() {
+		return 0f;
+	}
+
+	@Override
+	public float getModelRotation() {
+		return m_modelRotation;
+	}
+
+	@Override
+	public Matrix3f getModelMatrix() {
+		float[] m = m_model;
+		Matrix3f matrix = new Matrix3f();
+		matrix.m00 = m[0];
+		matrix.m01 = m[1];
+		matrix.m10 = m[2];
+		matrix.m11 = m[3];
+		matrix.m20 = m[4];
+		matrix.m21 = m[5];
+		return matrix;
+	}
+
+	@Override
+	public Matrix3f getViewMatrix() {
+		Matrix3f matrix = new Matrix3f();
+		matrix.m00 = m_viewScaleX;
+		matrix.m11 = m_viewScaleY;
+		matrix.m20 = m_viewX;
+		matrix.m21 = m_viewY;
+		return matrix;
+	}
+
+	@Override
+	public void pushView() {
+		m_viewStack.push(new float[] { m_viewX, m_viewY, m_viewScaleX, m_viewScaleY });
+	}
+
+	@Override
+	public void popView() {
+		if (m_viewStack.isEmpty())
+			throw new RenderingException("Popped more views than were pushed!");
+		float[] view = m_viewStack.pop();
+		m_viewX = view[0];
+		m_viewY = view[1];
+		m_viewScaleX = view[2];
+		m_viewScaleY = view[3];
+	}
+
+	@Override
+	public void pushModel() {
+		float[] model = new float[7];
+		System.arraycopy(m_model, 0, model, 0, 6);
+		model[6] = m_modelRotation;
+		m_modelStack.push(model);
+	}
+
+	@Override
+	public void popModel() {
+		if (m_modelStack.isEmpty())
+			throw new RenderingException("Popped more models than were pushed!");
+		float[] model = m_modelStack.pop();
+		System.arraycopy(model, 0, m_model, 0, 6);
+		m_modelRotation = model[6];
+	}
+
+	@Override
+	public void fillRect(float x, float y, float width, float height) {
+		m_rects++;
+	}
+
+	@Override
+	public void fillRect(float x, float y, float width, float height, float repeatX, float repeatY) {
+		m_rects++;
+	}
+
+	@Override
+	public void drawString(float x, float y, float size, String string) {
+		m_strings++;
+	}
+
+	@Override
+	public void renderLight(Light light) {
+		m_lights++;
+	}
+
+	@Override
+	public void startGeometry() {
+	}
+
+	@Override
+	public void finishGeometry() {
+	}
+
+	@Override
+	public void startLighted() {
+	}
+
+	@Override
+	public void finishLighted() {
+	}
+
+	@Override
+	public void doLightingComputations() {
+		m_lastRects = m_rects;
+		m_lastStrings = m_strings;
+		m_lastLights = m_lights;
+		m_frames++;
+	}
+
+	@Override
+	public void clear() {
+		m_rects = 0;
+		m_strings = 0;
+		m_lights = 0;
+	}
+
+	/**
+	 * @return the number of rectangles filled in the last frame
+	 */
+	public int getRectCount() {
+		return m_lastRects;
+	}
+
+	/**
+	 * @return the number of strings drawn in the last frame
+	 */
+	public int getStringCount() {
+		return m_lastStrings;
+	}
+
+	/**
+	 * @return the number of Lights rendered in the last frame
+	 */
+	public int getLightCount() {
+		return m_lastLights;
+	}
+
+	/**
+	 * @return the number of frames finished
+	 */
+	public long getFrameCount() {
+		return m_frames;
+	}
+}
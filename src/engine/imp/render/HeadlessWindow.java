@@ -0,0 +1,219 @@
+package engine.imp.render;
+
+import glcommon.util.ResourceLocator.ClasspathResourceLocator;
+import gltools.display.FileDropListener;
+import gltools.display.Monitor;
+import gltools.display.MonitorProvider;
+import gltools.display.MoveListener;
+import gltools.display.ResizeListener;
+import gltools.display.Window;
+import gltools.display.WindowStateListener;
+import gltools.gl.GL;
+import gltools.input.Keyboard;
+import gltools.input.Mouse;
+import gltools.input.Mouse.MouseButton;
+
+/**
+ * A Window which is never shown and has no GL, for running a Game without a display. Its Mouse and Keyboard have the
+ * same buttons and keys as the GLFW ones, but nothing is ever pressed, so Scripts which poll input still work.
+ */
+public class HeadlessWindow implements Window {
+	// the key names of the GLFW keyboard, so Scripts find the same keys
+	private static final String KEY_CONFIG = "Config/Keyboard/glfw_keys.xml";
+
+	private int m_width;
+	private int m_height;
+	private int m_x;
+	private int m_y;
+	private String m_title = "";
+	private boolean m_resizable;
+	private boolean m_initialized;
+	private boolean m_closeRequested;
+
+	private Mouse m_mouse;
+	private Keyboard m_keyboard;
+
+	/**
+	 * Initializes a HeadlessWindow with a size in pixels, which WorldMouse uses to convert the mouse position.
+	 *
+	 * @param width
+	 * @param height
+	 */
+	public HeadlessWindow(int width, int height) {
+		m_width = width;
+		m_height = height;
+
+		m_mouse = new Mouse() {
+			@Override
+			public void poll() {
+			}
+		};
+		m_mouse.add(new MouseButton(0, "LEFT_BUTTON"));
+		m_mouse.add(new MouseButton(1, "RIGHT_BUTTON"));
+		m_mouse.add(new MouseButton(2, "MIDDLE_BUTTON"));
+
+		m_keyboard = new Keyboard() {
+			@Override
+			public void poll() {
+			}
+		};
+		try {
+			m_keyboard.readXMLKeyConfig(KEY_CONFIG, new ClasspathResourceLocator());
+		} catch (Exception e) {
+			throw new RenderingException("Could not read the key config: " + KEY_CONFIG, e);
+		}
+	}
+
+	@Override
+	public int getWidth() {
+		return m_width;
+	}
+
+	@Override
+	public int getHeight() {
+		return m_height;
+	}
+
+	/**
+	 * @return null, as there is no GL
+	 */
+	@Override
+	public GL getGL() {
+		return null;
+	}
+
+	@Override
+	public Mouse getMouse() {
+		return m_mouse;
+	}
+
+	@Override
+	public Keyboard getKeyboard() {
+		return m_keyboard;
+	}
+
+	@Override
+	public void init() {
+		m_initialized = true;
+	}
+
+	@Override
+	public void destroy() {
+		m_initialized = false;
+	}
+
+	@Override
+	public void update() {
+	}
+
+	@Override
+	public int getX() {
+		return m_x;
+	}
+
+	@Override
+	public int getY() {
+		return m_y;
+	}
+
+	@Override
+	public String getTitle() {
+		return m_title;
+	}
+
+	/**
+	 * @return null, as there are no monitors
+	 */
+	@Override
+	public MonitorProvider getMonitorProvider() {
+		return null;
+	}
+
+	@Override
+	public boolean isResizable() {
+		return m_resizable;
+	}
+
+	@Override
+	public boolean isFullscreen() {
+		return false;
+	}
+
+	@Override
+	public boolean isVisible() {
+		return false;
+	}
+
+	@Override
+	public boolean isInitialized() {
+		return m_initialized;
+	}
+
+	@Override
+	public void useFullscreen(Monitor monitor) {
+	}
+
+	@Override
+	public void setResizable(boolean resizable) {
+		m_resizable = resizable;
+	}
+
+	@Override
+	public void setVisible(boolean visible) {
+	}
+
+	@Override
+	public void setX(int x) {
+		m_x = x;
+	}
+
+	@Override
+	public void setY(int y) {
+		m_y = y;
+	}
+
+	@Override
+	public void setPosition(int x, int y) {
+		m_x = x;
+		m_y = y;
+	}
+
+	@Override
+	public void setSize(int width, int height) {
+		m_width = width;
+		m_height = height;
+	}
+
+	@Override
+	public void setTitle(String title) {
+		m_title = title;
+	}
+
+	@Override
+	public void addResizedListener(ResizeListener listener) {
+	}
+
+	@Override
+	public void addFileDropListener(FileDropListener listener) {
+	}
+
+	@Override
+	public void addMoveListener(MoveListener listener) {
+	}
+
+	@Override
+	public void addStateListener(WindowStateListener listener) {
+	}
+
+	/**
+	 * Makes closeRequested() return true, like closing a real Window would.
+	 */
+	public void requestClose() {
+		m_closeRequested = true;
+	}
+
+	@Override
+	public boolean closeRequested() {
+		return m_closeRequested;
+	}
+}
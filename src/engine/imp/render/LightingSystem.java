@@ -1,12 +1,12 @@
 package engine.imp.render;
 
-import commons.matrix.Vector2f;
-
+import engine.core.CTransform;
 import engine.core.Entity;
-import engine.core.EntitySystem;
 import engine.core.Scene;
+import engine.core.ScheduledSystem;
 import engine.core.SimpleEntityFilter;
 import engine.core.TreeNode;
+import engine.core.WorldTransformBuffer;
 import engine.core.script.XScript;
 import glcommon.vector.Vector3f;
 import glextra.renderer.Light;
@@ -16,7 +16,7 @@ import glextra.renderer.Renderer2D;
 /**
  * Draws Lights to a RenderSystem.
  */
-public class LightingSystem implements EntitySystem {
+public class LightingSystem implements ScheduledSystem {
 	private static final SimpleEntityFilter s_filter = new SimpleEntityFilter(new String[] { CLight.NAME }, new String[0], false);
 
 	private RenderingSystem m_render;
@@ -66,19 +66,18 @@ public class LightingSystem implements EntitySystem {
 	public void updateEntity(Entity entity, Scene scene, float time) {
 		Renderer2D renderer = m_render.getRenderer();
 
-		Vector2f camTranslate = null;
+		WorldTransformBuffer world = scene.getWorldTransforms();
+		float camX = 0f;
+		float camY = 0f;
 		if (m_render.getCamera() != null) {
-			camTranslate = scene.getWorldTransform(m_render.getCamera()).getTranslation();
-		} else {
-			camTranslate = new Vector2f(0f, 0f);
+			camX = world.getX(m_render.getCamera());
+			camY = world.getY(m_render.getCamera());
 		}
 
 		Light light = ((CLight) entity.components().get(CLight.NAME)).getLight();
-		Vector2f translate = scene.getWorldTransform(entity).getTranslation();
 
 		if (light instanceof PointLight) {
-			((PointLight) light).setPosition(new Vector3f(translate.getX() - camTranslate.getX(), translate.getY()
-					- camTranslate.getY(), 1f));
+			((PointLight) light).setPosition(new Vector3f(world.getX(entity) - camX, world.getY(entity) - camY, 1f));
 		}
 
 		renderer.renderLight(light);
@@ -89,6 +88,26 @@ public class LightingSystem implements EntitySystem {
 
 	}
 
+	@Override
+	public String[] getReadComponents() {
+		return new String[] { CLight.NAME, CTransform.NAME };
+	}
+
+	@Override
+	public String[] getWrittenComponents() {
+		return new String[0];
+	}
+
+	@Override
+	public boolean isMainThreadOnly() {
+		return true;
+	}
+
+	@Override
+	public boolean isEntityUpdateParallel() {
+		return false;
+	}
+
 	@Override
 	public SimpleEntityFilter getUpdateFilter() {
 		return s_filter;
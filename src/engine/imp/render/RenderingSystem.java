@@ -9,14 +9,14 @@ import java.util.Objects;
 import commons.GLResourceLocator;
 import commons.Resource;
 import commons.ResourceLocator.ClasspathResourceLocator;
-import commons.Transform2f;
 
+import engine.core.CTransform;
 import engine.core.Entity;
-import engine.core.EntitySystem;
 import engine.core.Scene;
+import engine.core.ScheduledSystem;
 import engine.core.SimpleEntityFilter;
 import engine.core.TreeNode;
-import engine.core.asset.AssetManager;
+import engine.core.WorldTransformBuffer;
 import engine.core.script.XScript;
 import engine.core.script.XScriptObject;
 import glcommon.Color;
@@ -35,7 +35,7 @@ import gltools.texture.Texture2D;
 /**
  * Renders the Entities with a CRender to a Display. Will also call mouse and keyboard events on the scripts.
  */
-public class RenderingSystem implements EntitySystem {
+public class RenderingSystem implements ScheduledSystem {
 	private static final SimpleEntityFilter s_eventFilter = new SimpleEntityFilter(new String[] { CCamera.NAME }, new String[0],
 			false);
 	private static final SimpleEntityFilter s_updateFilter = new SimpleEntityFilter(new String[] { CRender.NAME }, new String[0],
@@ -66,21 +66,37 @@ public class RenderingSystem implements EntitySystem {
 	private HashMap<MaterialKey, Material> m_materials = new HashMap<MaterialKey, Material>();
 
 	/**
+	 * Makes a RenderingSystem which draws to a new GLFW Window.
+	 * 
 	 * @param width
 	 *            the width of the screen's coordinate system, in meters
 	 * @param height
 	 *            the hieght of the screen's coordinate system, in meters
 	 */
 	public RenderingSystem(float width, float height) {
-		Window window = new GLFWWindow();
-		window.setResizable(true);
-		window.init();
-		window.getGL().makeCurrent();
-		window.setSize(800, 800);
+		this(width, height, createWindow(), new LWJGLRenderer2D());
+	}
+
+	/**
+	 * Makes a RenderingSystem which draws with a Renderer2D to a Window. The Window should already be initialized. If
+	 * the Window has no GL, such as a HeadlessWindow, the deferred materials are not loaded and the Renderer2D must be
+	 * one which doesn't need them, such as a HeadlessRenderer2D.
+	 * 
+	 * @param width
+	 *            the width of the screen's coordinate system, in meters
+	 * @param height
+	 *            the hieght of the screen's coordinate system, in meters
+	 * @param window
+	 * @param renderer
+	 *            the renderer, which this initializes
+	 */
+	public RenderingSystem(float width, float height, Window window, Renderer2D renderer) {
+		if (window == null || renderer == null)
+			throw new RenderingException("Cannot render with a null Window or Renderer2D!");
 
 		float widthHalf = width * 0.5f;
 		float heightHalf = height * 0.5f;
-		m_renderer = new LWJGLRenderer2D();
+		m_renderer = renderer;
 		m_renderer.init(widthHalf, widthHalf, heightHalf, heightHalf, window);
 
 		m_display = window;
@@ -88,7 +104,40 @@ public class RenderingSystem implements EntitySystem {
 		m_height = height;
 		m_mouse = new WorldMouse(m_display, this);
 
-		initMaterials(window.getGL());
+		if (window.getGL() != null)
+			initMaterials(window.getGL());
+	}
+
+	/**
+	 * Makes a RenderingSystem which draws nothing and needs no display or GL, so a Game can run on a server or in a
+	 * benchmark.
+	 * 
+	 * @param width
+	 *            the width of the screen's coordinate system, in meters
+	 * @param height
+	 *            the hieght of the screen's coordinate system, in meters
+	 * @return the RenderingSystem, whose getRenderer() is a HeadlessRenderer2D
+	 */
+	public static RenderingSystem headless(float width, float height) {
+		Window window = new HeadlessWindow(800, 800);
+		window.init();
+		return new RenderingSystem(width, height, window, new HeadlessRenderer2D());
+	}
+
+	private static Window createWindow() {
+		Window window = new GLFWWindow();
+		window.setResizable(true);
+		window.init();
+		window.getGL().makeCurrent();
+		window.setSize(800, 800);
+		return window;
+	}
+
+	/**
+	 * @return whether this draws to a real display
+	 */
+	public boolean isHeadless() {
+		return m_display.getGL() == null;
 	}
 
 	private void initMaterials(GL gl) {
@@ -305,11 +354,11 @@ public class RenderingSystem implements EntitySystem {
 	public void postUpdate(Scene scene) {
 		List<Integer> orderedLayers = new ArrayList<Integer>(m_entityLayers.keySet());
 		Collections.sort(orderedLayers);
+		WorldTransformBuffer world = scene.getWorldTransforms();
 
 		for (Integer layer : orderedLayers) {
 			List<Entity> entities = m_entityLayers.get(layer);
 			for (Entity e : entities) {
-				Transform2f transform = scene.getWorldTransform(e);
 				CRender crender = (CRender) e.components().get(CRender.NAME);
 				if (!crender.isVisible())
 					continue;
@@ -322,12 +371,15 @@ public class RenderingSystem implements EntitySystem {
 				MaterialKey key = new MaterialKey(color != null, normal != null, isLighted);
 				Material mat = m_materials.get(key);
 
-				if (texture != null)
-					mat.setTexture2D(MATERIAL_DIFFUSE_TEXTURE, texture);
-				if (normal != null)
-					mat.setTexture2D(MATERIAL_NORMAL_MAP, normal);
-				if (color != null)
-					mat.setColor(MATERIAL_DIFFUSE_COLOR, color);
+				// there are no materials when headless
+				if (mat != null) {
+					if (texture != null)
+						mat.setTexture2D(MATERIAL_DIFFUSE_TEXTURE, texture);
+					if (normal != null)
+						mat.setTexture2D(MATERIAL_NORMAL_MAP, normal);
+					if (color != null)
+						mat.setColor(MATERIAL_DIFFUSE_COLOR, color);
+				}
 
 				m_renderer.setMaterial(mat);
 
@@ -335,22 +387,21 @@ public class RenderingSystem implements EntitySystem {
 
 				if (m_currentCam != null) {
 					CCamera cam = (CCamera) m_currentCam.components().get(CCamera.NAME);
-					Transform2f camTrans = scene.getWorldTransform(m_currentCam);
 					float depth = crender.getDepth();
 
-					float transX = (transform.getTranslation().getX() - camTrans.getTranslation().getX()) / depth;
-					float transY = (transform.getTranslation().getY() - camTrans.getTranslation().getY()) / depth;
+					float transX = (world.getX(e) - world.getX(m_currentCam)) / depth;
+					float transY = (world.getY(e) - world.getY(m_currentCam)) / depth;
 
 					m_renderer.scale(cam.getScale(), cam.getScale());
 
 					m_renderer.translate(transX, transY);
 					m_renderer.scale(1f / depth, 1f / depth);
-					m_renderer.rotate(transform.getRotation());
-					m_renderer.scale(transform.getScale().getX(), transform.getScale().getY());
+					m_renderer.rotate(world.getRotation(e));
+					m_renderer.scale(world.getScaleX(e), world.getScaleY(e));
 				} else {
-					m_renderer.translate(transform.getTranslation().getX(), transform.getTranslation().getY());
-					m_renderer.rotate(transform.getRotation());
-					m_renderer.scale(transform.getScale().getX(), transform.getScale().getY());
+					m_renderer.translate(world.getX(e), world.getY(e));
+					m_renderer.rotate(world.getRotation(e));
+					m_renderer.scale(world.getScaleX(e), world.getScaleY(e));
 				}
 
 				m_renderer.fillRect(-HALF_DRAW_WIDTH, -HALF_DRAW_WIDTH, DRAW_WIDTH, DRAW_WIDTH, crender.getRepeatX(),
@@ -367,6 +418,26 @@ public class RenderingSystem implements EntitySystem {
 		m_display.update();
 	}
 
+	@Override
+	public String[] getReadComponents() {
+		return new String[] { CRender.NAME, CCamera.NAME, CTransform.NAME };
+	}
+
+	@Override
+	public String[] getWrittenComponents() {
+		return new String[0];
+	}
+
+	@Override
+	public boolean isMainThreadOnly() {
+		return true;
+	}
+
+	@Override
+	public boolean isEntityUpdateParallel() {
+		return false;
+	}
+
 	@Override
 	public SimpleEntityFilter getUpdateFilter() {
 		return s_updateFilter;
@@ -379,7 +450,7 @@ public class RenderingSystem implements EntitySystem {
 
 	@Override
 	public void scriptAdded(Entity entity, XScript script, Scene scene) {
-		script.addScriptObject(new XScriptObject("assets", AssetManager.instance()));
+		script.addScriptObject(new XScriptObject("assets", scene.getGame().getAssets()));
 		script.addScriptObject(new XScriptObject("mouse", m_mouse));
 		script.addScriptObject(new XScriptObject("keyboard", getKeyboard()));
 	}
@@ -4,8 +4,6 @@ import engine.core.Entity;
 import gltools.display.Display;
 import gltools.input.Mouse;
 
-import commons.matrix.Vector2f;
-
 /**
  * A Mouse as defined in world coordinates. Adds the methods getWorldX() and getWorldY().
  */
@@ -27,12 +25,12 @@ public class WorldMouse {
 		Entity camera = m_render.getCamera();
 		if (camera == null)
 			return m_mouse.getX();
-		Vector2f translate = camera.getScene().getWorldTransform(camera).getTranslation();
+		float cameraX = camera.getScene().getWorldTransforms().getX(camera);
 		float scale = ((CCamera) camera.components().get(CCamera.NAME)).getScale();
 
 		float mx = (m_mouse.getX() / (float) m_display.getWidth()) * m_render.getWidth() - m_render.getWidth() / 2;
 		mx /= scale;
-		mx += translate.getX();
+		mx += cameraX;
 
 		return mx;
 	}
@@ -44,12 +42,12 @@ public class WorldMouse {
 		Entity camera = m_render.getCamera();
 		if (camera == null)
 			return m_mouse.getY();
-		Vector2f translate = camera.getScene().getWorldTransform(camera).getTranslation();
+		float cameraY = camera.getScene().getWorldTransforms().getY(camera);
 		float scale = ((CCamera) camera.components().get(CCamera.NAME)).getScale();
 
 		float my = (m_mouse.getY() / (float) m_display.getHeight()) * m_render.getHeight() - m_render.getHeight() / 2;
 		my /= scale;
-		my += translate.getY();
+		my += cameraY;
 
 		return my;
 	}
@@ -0,0 +1,60 @@
+package test.core;
+
+import engine.core.Entity;
+import engine.core.EntityBuilder;
+import engine.core.Game;
+import engine.core.Scene;
+
+/**
+ * Checks that a deferred createEntity() which fails at the flush, such as from a name clash, leaves the Scene usable:
+ * the Entity and its children are not added, and later frames still update.
+ */
+public class DeferredFlushTest {
+	public void start() {
+		Game game = new Game();
+		Scene scene = new Scene(game);
+		game.scenes().addScene(scene, "main");
+		game.start();
+
+		EntityBuilder builder = new EntityBuilder();
+		builder.addChildBuilder("child", new EntityBuilder());
+
+		scene.beginDeferring();
+		Entity first = scene.createEntity("a", scene, builder);
+		Entity clash = scene.createEntity("a", scene, builder);
+		Entity grandchild = scene.createEntity("grandchild", clash);
+		scene.enable(clash);
+		scene.moveEntity(grandchild, first);
+		Entity after = scene.createEntity("b", scene);
+		try {
+			scene.endDeferring();
+			fail("The name clash was not reported");
+		} catch (RuntimeException e) {
+			System.out.println("Reported: " + e.getMessage());
+		}
+
+		check(scene.contains(first) && scene.contains(first.tree().getChild("child")), "first Entity was not added");
+		check(!scene.contains(clash) && clash.isDestroyed(), "clashing Entity was added");
+		check(!scene.contains(grandchild) && scene.getRootEntity("a") == first, "child of the clashing Entity was added");
+		check(scene.contains(after), "later Entity was not added");
+		check(scene.getAllEntities().size() == 3, "wrong number of Entities: " + scene.getAllEntities().size());
+
+		scene.updateWorldTransforms();
+		game.update(0.016f);
+		game.update(0.016f);
+		System.out.println("DeferredFlushTest passed");
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			fail(message);
+	}
+
+	private static void fail(String message) {
+		throw new RuntimeException("DeferredFlushTest failed: " + message);
+	}
+
+	public static void main(String[] args) {
+		new DeferredFlushTest().start();
+	}
+}
@@ -14,6 +14,9 @@ import engine.core.ComponentBuilder;
 import engine.core.Entity;
 import engine.core.EntityBuilder;
 import engine.core.Game;
+import engine.core.FrameProfiler;
+import engine.core.GameLoop;
+import engine.core.GameLoop.FrameListener;
 import engine.core.Scene;
 import engine.core.asset.AssetManager;
 import engine.core.script.XPython;
@@ -31,15 +34,19 @@ import engine.imp.render.RenderingSystem;
 import glcommon.Color;
 
 /**
- * Tests the Dyn4j physics.
+ * Tests the Dyn4j physics. Run with the argument "headless" to simulate without a window, printing the frame timings
+ * every few seconds.
  */
 public class PhysicsTest {
-	public PhysicsTest() {
+	private boolean m_headless;
+
+	public PhysicsTest(boolean headless) {
+		m_headless = headless;
 	}
 
 	public void start() {
 		Game game = new Game();
-		RenderingSystem rendering = new RenderingSystem(20f, 20f);
+		RenderingSystem rendering = m_headless ? RenderingSystem.headless(20f, 20f) : new RenderingSystem(20f, 20f);
 		LightingSystem lighting = new LightingSystem(rendering);
 		BodySystem bodies = new BodySystem(new Vector2f(0f, -10f));
 		JointSystem joints = new JointSystem(bodies);
@@ -61,13 +68,20 @@ public class PhysicsTest {
 		makeScene(scene);
 
 		game.start();
-		float lastTime = 16f;
-		while (true) {
-			long startTime = System.nanoTime();
-			game.update(lastTime);
-			long endTime = System.nanoTime();
-			lastTime = (endTime - startTime) / 1000000;
+		GameLoop loop = new GameLoop(game, 60f);
+		if (m_headless) {
+			final FrameProfiler profiler = new FrameProfiler(300);
+			game.setProfiler(profiler);
+			final GameLoop headlessLoop = loop;
+			loop.setFrameListener(new FrameListener() {
+				@Override
+				public void frameDone(int steps, float alpha) {
+					if (steps > 0 && headlessLoop.getStepCount() % 300 < steps)
+						System.out.print("Step " + headlessLoop.getStepCount() + "\n" + profiler.report());
+				}
+			});
 		}
+		loop.run();
 	}
 
 	private void loadAssets(RenderingSystem system) {
@@ -162,6 +176,7 @@ public class PhysicsTest {
 	}
 
 	public static void main(String[] args) {
-		new PhysicsTest().start();
+		boolean headless = args.length > 0 && args[0].equals("headless");
+		new PhysicsTest(headless).start();
 	}
 }
@@ -10,6 +10,7 @@ import engine.core.CTransform.TransformMode;
 import engine.core.Entity;
 import engine.core.EntityBuilder;
 import engine.core.Game;
+import engine.core.GameLoop;
 import engine.core.Scene;
 import engine.core.asset.AssetManager;
 import engine.core.script.XPython;
@@ -61,13 +62,8 @@ public class RenderTest {
 		scene.createEntity("camera", scene, cameraBuilder);
 
 		game.start();
-		float lastTime = 16f;
-		while (true) {
-			long startTime = System.nanoTime();
-			game.update(lastTime);
-			long endTime = System.nanoTime();
-			lastTime = (endTime - startTime) / 1000000;
-		}
+		GameLoop loop = new GameLoop(game, 60f);
+		loop.run();
 	}
 
 	private void makeBackground(Scene scene) {